@@ -0,0 +1,94 @@
+package sales.demo.config;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import sales.demo.services.ResilienciaInventario;
+
+/**
+ * Cliente HTTP usado por el RestTemplate hacia el microservicio de inventario.
+ * Por defecto usa un pool de conexiones persistentes de Apache HttpClient; con
+ * inventario.http.http2=true se usa el cliente del JDK negociando HTTP/2.
+ * Con Apache HttpClient, las llamadas hechas a través de
+ * {@link ResilienciaInventario} usan como timeout de respuesta el que queda del
+ * plazo de su petición en lugar del read timeout fijo.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    public ClientHttpRequestFactory inventarioRequestFactory(
+            @Value("${inventario.http.max-conexiones:200}") int maxConexiones,
+            @Value("${inventario.http.max-conexiones-por-ruta:50}") int maxConexionesPorRuta,
+            @Value("${inventario.http.connect-timeout-ms:1000}") long connectTimeoutMs,
+            @Value("${inventario.http.read-timeout-ms:3000}") long readTimeoutMs,
+            @Value("${inventario.http.keep-alive-ms:30000}") long keepAliveMs,
+            @Value("${inventario.http.http2:false}") boolean http2) {
+        if (http2) {
+            HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(cliente);
+            factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+            return factory;
+        }
+
+        PoolingHttpClientConnectionManager conexiones = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConexiones)
+            .setMaxConnPerRoute(maxConexionesPorRuta)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+
+        CloseableHttpClient cliente = HttpClients.custom()
+            .setConnectionManager(conexiones)
+            .setKeepAliveStrategy((respuesta, contexto) -> TimeValue.ofMilliseconds(keepAliveMs))
+            .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+            .evictExpiredConnections()
+            .build();
+
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(cliente) {
+            @Override
+            protected HttpContext createHttpContext(HttpMethod metodo, URI uri) {
+                Duration timeout = ResilienciaInventario.timeoutLlamadaActual();
+                if (timeout == null) {
+                    return null;
+                }
+
+                HttpClientContext contexto = HttpClientContext.create();
+                contexto.setRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.of(timeout.compareTo(Duration.ofMillis(connectTimeoutMs)) < 0
+                        ? timeout : Duration.ofMillis(connectTimeoutMs)))
+                    .setResponseTimeout(Timeout.of(timeout))
+                    .build());
+                return contexto;
+            }
+        };
+        factory.setConnectionRequestTimeout(Duration.ofMillis(connectTimeoutMs));
+        return factory;
+    }
+
+}
@@ -0,0 +1,19 @@
+package sales.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Activa las tareas programadas: el envío de los movimientos del outbox, las
+ * purgas de claves de idempotencia, la comprobación de salud de las réplicas de
+ * inventario y la reconstrucción de los resúmenes. Con
+ * ventas.programacion.habilitada=false no se ejecuta ninguna, p. ej. en las
+ * pruebas que cuentan las consultas lanzadas por una operación.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "ventas.programacion.habilitada", havingValue = "true", matchIfMissing = true)
+public class ProgramacionConfig {
+
+}
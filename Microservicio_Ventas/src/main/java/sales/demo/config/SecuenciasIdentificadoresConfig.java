@@ -0,0 +1,69 @@
+package sales.demo.config;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Ajusta las secuencias de identificadores de Ventas antes de que arranque JPA.
+ * Las entidades toman sus IDs con el optimizador pooled, que usa el valor de la
+ * secuencia como límite superior de cada bloque, así que en una tabla que ya
+ * tiene filas la secuencia debe continuar por encima del mayor ID más el tamaño
+ * de bloque. Es lo que hace la migración V3 de Pedidos; Ventas crea el esquema
+ * con ddl-auto, que crearía las secuencias desde 1, por eso se hace al arrancar.
+ */
+@Configuration
+public class SecuenciasIdentificadoresConfig {
+
+    // allocationSize de los @SequenceGenerator de las entidades
+    private static final int TAMANO_BLOQUE = 50;
+
+    private static final List<Secuencia> SECUENCIAS = List.of(
+        new Secuencia("SEQ_VENTAS", "VENTAS", "id_venta"),
+        new Secuencia("SEQ_DETALLES_VENTA", "DETALLES_VENTA", "id_detalle_venta"),
+        new Secuencia("SEQ_HISTORIAL_VENTA", "HISTORIAL_VENTA", "id_historial_venta"),
+        new Secuencia("SEQ_OUTBOX_MOVIMIENTOS_STOCK", "OUTBOX_MOVIMIENTOS_STOCK", "id_movimiento"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SecuenciasIdentificadoresConfig(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    // Hibernate no crea el EntityManagerFactory, ni reserva bloques de IDs, hasta que las secuencias están ajustadas
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependeDeSecuencias() {
+        return new EntityManagerFactoryDependsOnPostProcessor(SecuenciasIdentificadoresConfig.class);
+    }
+
+    @PostConstruct
+    public void ajustarSecuencias() {
+        for (Secuencia secuencia : SECUENCIAS) {
+            Integer tablas = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                Integer.class, secuencia.tabla());
+            if (tablas == null || tablas == 0) {
+                // Base de datos nueva: ddl-auto crea la tabla vacía y su secuencia desde 1
+                continue;
+            }
+
+            Long inicio = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + secuencia.columnaId() + "), 0) + "
+                + (TAMANO_BLOQUE + 1) + " FROM " + secuencia.tabla(), Long.class);
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + secuencia.nombre() + " START WITH " + inicio
+                + " INCREMENT BY " + TAMANO_BLOQUE);
+            // SETVAL nunca hace retroceder la secuencia: solo adelanta la que se creó desde 1 con filas ya existentes
+            jdbcTemplate.queryForList("SELECT SETVAL(" + secuencia.nombre() + ", " + inicio + ", 0)");
+        }
+    }
+
+    private record Secuencia(String nombre, String tabla, String columnaId) {
+    }
+
+}
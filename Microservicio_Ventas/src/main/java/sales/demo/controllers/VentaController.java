@@ -1,9 +1,12 @@
 package sales.demo.controllers;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -13,9 +16,25 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import sales.demo.dto.CriterioRanking;
 import sales.demo.dto.HistorialVentaDTO;
+import sales.demo.dto.PaginaVentasDTO;
+import sales.demo.dto.ResultadoVentaLoteDTO;
+import sales.demo.dto.ResumenDiarioVentasDTO;
+import sales.demo.dto.ResumenProductoVentasDTO;
+import sales.demo.dto.ResumenVendedorVentasDTO;
+import sales.demo.dto.TamanoCestaDTO;
 import sales.demo.dto.VentaDTO;
+import sales.demo.services.AnaliticaVentasService;
+import sales.demo.services.ResumenVentasService;
+import sales.demo.services.VentaIdempotenteService;
 import sales.demo.services.VentaService;
 
 @RestController
@@ -25,36 +44,107 @@ import sales.demo.services.VentaService;
 public class VentaController {
 
 	private final VentaService ventaService;
-
-	    // URL del mircroservicio de inventario
-    private static final String INVENTARIO_SERVICE_URL = "http://localhost:8016/farmasync/inventario";
+	private final ResumenVentasService resumenVentasService;
+	private final AnaliticaVentasService analiticaVentasService;
+	private final VentaIdempotenteService ventaIdempotenteService;
 	
 	@Autowired
-	public VentaController(VentaService ventaService) {
+	public VentaController(VentaService ventaService, ResumenVentasService resumenVentasService,
+			AnaliticaVentasService analiticaVentasService, VentaIdempotenteService ventaIdempotenteService) {
 		this.ventaService = ventaService;
+		this.resumenVentasService = resumenVentasService;
+		this.analiticaVentasService = analiticaVentasService;
+		this.ventaIdempotenteService = ventaIdempotenteService;
 	}
 
 	@PostMapping
-	@Operation(summary = "Registrar una nueva venta", description = "Crea una nueva venta en el sistema.")
+	@Operation(summary = "Registrar una nueva venta", description = "Crea una nueva venta en el sistema. Si se envía la cabecera Idempotency-Key, las repeticiones con la misma clave devuelven la venta ya registrada.")
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "201", description = "Venta creada exitosamente"),
 			@ApiResponse(responseCode = "400", description = "Datos de entrada inválidos"),
 			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
 	})
-	public ResponseEntity<VentaDTO> crearVenta(@Valid @RequestBody VentaDTO ventaDTO) {
-		VentaDTO venta = ventaService.crearVenta(ventaDTO);
+	public ResponseEntity<VentaDTO> crearVenta(
+			@Parameter(description = "Clave única del intento de venta, reutilizada en cada reintento del cliente") @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia,
+			@Valid @RequestBody VentaDTO ventaDTO) {
+		VentaDTO venta = claveIdempotencia != null
+				? ventaIdempotenteService.crearVenta(claveIdempotencia, ventaDTO)
+				: ventaService.crearVenta(ventaDTO);
 		return ResponseEntity.status(HttpStatus.CREATED).body(venta);
 	}
 	
+	@PostMapping("/async")
+	@Operation(summary = "Registrar una nueva venta de forma asíncrona", description = "Crea una nueva venta liberando el hilo de la petición mientras se consulta el inventario.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "201", description = "Venta creada exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Datos de entrada inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public CompletableFuture<ResponseEntity<VentaDTO>> crearVentaAsync(@Valid @RequestBody VentaDTO ventaDTO) {
+		return ventaService.crearVentaAsync(ventaDTO)
+				.thenApply(venta -> ResponseEntity.status(HttpStatus.CREATED).body(venta));
+	}
+	
+	@PostMapping("/lote")
+	@Operation(summary = "Registrar un lote de ventas", description = "Registra las ventas acumuladas por un terminal sin conexión y devuelve el resultado de cada una en el orden recibido.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Lote procesado; cada resultado indica si su venta se registró"),
+			@ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<ResultadoVentaLoteDTO>> crearVentasLote(
+			@RequestBody @NotEmpty @Size(max = 1000) List<VentaDTO> ventas) {
+		List<ResultadoVentaLoteDTO> resultados = ventaService.crearVentasLote(ventas);
+		return ResponseEntity.ok(resultados);
+	}
+	
 	@GetMapping
-	@Operation(summary = "Listar todas las ventas", description = "Devuelve una lista de todas las ventas registradas.")
+	@Operation(summary = "Listar ventas paginadas", description = "Devuelve una página de ventas ordenadas por ID y el cursor para solicitar la siguiente.")
 	@ApiResponses(value = {
-			@ApiResponse(responseCode = "200", description = "Lista de ventas obtenida exitosamente"),
+			@ApiResponse(responseCode = "200", description = "Página de ventas obtenida exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Cursor o límite inválidos"),
 			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
 	})
-	public ResponseEntity<List<VentaDTO>> listarVentas() {
-		List<VentaDTO> ventas = ventaService.obtenerTodasLasVentas();
-		return ResponseEntity.ok(ventas);
+	public ResponseEntity<PaginaVentasDTO> listarVentas(
+			@Parameter(description = "Cursor devuelto por la página anterior; vacío para empezar desde el principio") @RequestParam(required = false) String cursor,
+			@Parameter(description = "Número máximo de ventas por página") @RequestParam(defaultValue = "50") @Min(1) @Max(VentaService.LIMITE_MAXIMO_PAGINA) int limite) {
+		PaginaVentasDTO pagina = ventaService.obtenerPaginaVentas(cursor, limite);
+		return ResponseEntity.ok(pagina);
+	}
+
+	@GetMapping(value = "/exportar", produces = "application/x-ndjson")
+	@Operation(summary = "Exportar todas las ventas", description = "Devuelve todas las ventas en formato NDJSON, una por línea, escribiéndolas a medida que se leen.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Exportación completada"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public void exportarVentas(HttpServletResponse response) throws IOException {
+		// Se escribe en el hilo de la petición para no quedar sujeto al timeout de las peticiones asíncronas
+		response.setContentType("application/x-ndjson");
+		response.setCharacterEncoding("UTF-8");
+		ventaService.exportarVentas(response.getOutputStream());
+	}
+	
+	@GetMapping(value = "/exportar/csv", produces = { "text/csv", "application/gzip" })
+	@Operation(summary = "Exportar líneas de venta en CSV", description = "Devuelve una fila por detalle de venta del rango de fechas en formato CSV, comprimido con gzip por defecto, escribiéndolas a medida que se leen.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Exportación completada"),
+			@ApiResponse(responseCode = "400", description = "Parámetros de fecha inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public void exportarLineasCsv(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin,
+			@Parameter(description = "Comprimir la exportación con gzip") @RequestParam(defaultValue = "true") boolean comprimir,
+			HttpServletResponse response) throws IOException {
+		java.time.LocalDate inicio = java.time.LocalDate.parse(fechaInicio);
+		java.time.LocalDate fin = java.time.LocalDate.parse(fechaFin);
+
+		String archivo = "ventas_" + inicio + "_" + fin + (comprimir ? ".csv.gz" : ".csv");
+		response.setContentType(comprimir ? "application/gzip" : "text/csv");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + archivo + "\"");
+		ventaService.exportarLineasCsv(inicio, fin, comprimir, response.getOutputStream());
 	}
 	
 	@GetMapping("/{id}")
@@ -75,6 +165,7 @@ public class VentaController {
 			@ApiResponse(responseCode = "200", description = "Venta actualizada exitosamente"),
 			@ApiResponse(responseCode = "400", description = "Datos de entrada inválidos"),
 			@ApiResponse(responseCode = "404", description = "Venta no encontrada"),
+			@ApiResponse(responseCode = "409", description = "La venta fue modificada por otro usuario"),
 			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
 	})
 	public ResponseEntity<VentaDTO> actualizarVenta(
@@ -92,7 +183,7 @@ public class VentaController {
 			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
 	})
 	public ResponseEntity<Void> eliminarVenta(@Parameter(description = "ID de la venta a eliminar", required = true) @PathVariable Long id) {
-		ventaService.eliminarVenta(id);
+		ventaIdempotenteService.eliminarVenta(id);
 		return ResponseEntity.noContent().build();
 	}
 
@@ -149,6 +240,121 @@ public class VentaController {
 		return ResponseEntity.ok(ventas);
 	}
 
+	@GetMapping("/resumen/diario")
+	@Operation(summary = "Obtener el resumen diario de ventas", description = "Devuelve el número de ventas y el importe total de cada día del rango, leídos del acumulado diario.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Resumen obtenido exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros de fecha inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<ResumenDiarioVentasDTO>> obtenerResumenDiario(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin,
+			@Parameter(description = "ID del vendedor; si se omite se suman todos los vendedores") @RequestParam(required = false) Long idVendedor) {
+		List<ResumenDiarioVentasDTO> resumen = resumenVentasService.obtenerResumenDiario(
+				java.time.LocalDate.parse(fechaInicio),
+				java.time.LocalDate.parse(fechaFin), idVendedor);
+		return ResponseEntity.ok(resumen);
+	}
+
+	@GetMapping("/resumen/vendedores")
+	@Operation(summary = "Obtener el resumen de ventas por vendedor", description = "Devuelve el número de ventas y el importe total de cada vendedor en el rango, leídos del acumulado diario.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Resumen obtenido exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros de fecha inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<ResumenVendedorVentasDTO>> obtenerResumenPorVendedor(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin) {
+		List<ResumenVendedorVentasDTO> resumen = resumenVentasService.obtenerResumenPorVendedor(
+				java.time.LocalDate.parse(fechaInicio),
+				java.time.LocalDate.parse(fechaFin));
+		return ResponseEntity.ok(resumen);
+	}
+
+	@GetMapping("/resumen/productos")
+	@Operation(summary = "Obtener el resumen de ventas por producto", description = "Devuelve las unidades vendidas y los ingresos de cada producto en el rango, ordenados de mayor a menor ingreso.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Resumen obtenido exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros de fecha inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<ResumenProductoVentasDTO>> obtenerResumenPorProducto(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin,
+			@Parameter(description = "ID del vendedor; si se omite se suman todos los vendedores") @RequestParam(required = false) Long idVendedor) {
+		List<ResumenProductoVentasDTO> resumen = resumenVentasService.obtenerResumenPorProducto(
+				java.time.LocalDate.parse(fechaInicio),
+				java.time.LocalDate.parse(fechaFin), idVendedor);
+		return ResponseEntity.ok(resumen);
+	}
+
+	@PostMapping("/resumen/reconstruir")
+	@Operation(summary = "Reconstruir el acumulado diario", description = "Recalcula el acumulado diario de ventas del rango a partir de las ventas guardadas, para cargar datos históricos o corregir desviaciones.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "204", description = "Acumulado reconstruido exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros de fecha inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<Void> reconstruirResumen(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin) {
+		resumenVentasService.reconstruir(java.time.LocalDate.parse(fechaInicio), java.time.LocalDate.parse(fechaFin));
+		return ResponseEntity.noContent().build();
+	}
+
+	@GetMapping("/analitica/productos")
+	@Operation(summary = "Obtener los productos más vendidos", description = "Devuelve los productos con más unidades vendidas o más ingresos en el rango de fechas.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Ranking obtenido exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<ResumenProductoVentasDTO>> obtenerProductosMasVendidos(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin,
+			@Parameter(description = "Medida por la que se ordena el ranking") @RequestParam(defaultValue = "INGRESOS") CriterioRanking criterio,
+			@Parameter(description = "Número de productos a devolver") @RequestParam(defaultValue = "10") @Min(1) @Max(100) int limite) {
+		List<ResumenProductoVentasDTO> productos = analiticaVentasService.obtenerProductosMasVendidos(
+				java.time.LocalDate.parse(fechaInicio),
+				java.time.LocalDate.parse(fechaFin), criterio, limite);
+		return ResponseEntity.ok(productos);
+	}
+
+	@GetMapping("/analitica/vendedores")
+	@Operation(summary = "Obtener el ranking de vendedores", description = "Devuelve los vendedores ordenados por el importe total vendido en el rango de fechas.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Ranking obtenido exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<ResumenVendedorVentasDTO>> obtenerRankingVendedores(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin,
+			@Parameter(description = "Número de vendedores a devolver") @RequestParam(defaultValue = "10") @Min(1) @Max(100) int limite) {
+		List<ResumenVendedorVentasDTO> vendedores = analiticaVentasService.obtenerRankingVendedores(
+				java.time.LocalDate.parse(fechaInicio),
+				java.time.LocalDate.parse(fechaFin), limite);
+		return ResponseEntity.ok(vendedores);
+	}
+
+	@GetMapping("/analitica/cestas")
+	@Operation(summary = "Obtener la distribución del tamaño de las ventas", description = "Devuelve cuántas ventas del rango tienen cada número de productos distintos y sus unidades promedio.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Distribución obtenida exitosamente"),
+			@ApiResponse(responseCode = "400", description = "Parámetros de fecha inválidos"),
+			@ApiResponse(responseCode = "500", description = "Error Interno del Servidor")
+	})
+	public ResponseEntity<List<TamanoCestaDTO>> obtenerDistribucionTamanoCesta(
+			@Parameter(description = "Fecha de inicio del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaInicio,
+			@Parameter(description = "Fecha de fin del rango (YYYY-MM-DD)", required = true) @RequestParam String fechaFin) {
+		List<TamanoCestaDTO> distribucion = analiticaVentasService.obtenerDistribucionTamanoCesta(
+				java.time.LocalDate.parse(fechaInicio),
+				java.time.LocalDate.parse(fechaFin));
+		return ResponseEntity.ok(distribucion);
+	}
+
 	@GetMapping("/detalles/{id}")
 	@Operation(summary = "Obtener detalles de una venta", description = "Devuelve los detalles de los productos asociados a una venta específica.")
 	@ApiResponses(value = {
@@ -162,4 +368,10 @@ public class VentaController {
 		return ResponseEntity.ok(detalles);
 	}
 
+	// Las restricciones de los parámetros (@Min, @Max, @Size...) se validan en el proxy de @Validated
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ProblemDetail manejarParametrosInvalidos(ConstraintViolationException ex) {
+		return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+	}
+
 }
@@ -0,0 +1,9 @@
+package sales.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Medida por la que se ordena un ranking de productos")
+public enum CriterioRanking {
+    CANTIDAD,
+    INGRESOS
+}
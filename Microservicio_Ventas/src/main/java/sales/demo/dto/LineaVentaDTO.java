@@ -0,0 +1,138 @@
+package sales.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Línea de venta aplanada: un detalle junto con los datos de su venta")
+public class LineaVentaDTO {
+
+    @Schema(description = "ID de la venta", example = "1")
+    private Long idVenta;
+
+    @Schema(description = "Fecha de la venta", example = "2024-06-15")
+    private LocalDate fechaVenta;
+
+    @Schema(description = "ID del vendedor", example = "2")
+    private Long idVendedor;
+
+    @Schema(description = "ID del cliente", example = "3")
+    private Long idCliente;
+
+    @Schema(description = "Total de la venta", example = "1500.75")
+    private BigDecimal totalVenta;
+
+    @Schema(description = "ID del detalle", example = "10")
+    private Long idDetalle;
+
+    @Schema(description = "ID del producto", example = "5")
+    private Long idProducto;
+
+    @Schema(description = "Cantidad vendida", example = "2")
+    private Integer cantidad;
+
+    @Schema(description = "Precio unitario del producto", example = "150.50")
+    private BigDecimal precioUnitario;
+
+    @Schema(description = "Subtotal del detalle", example = "301.00")
+    private BigDecimal subtotal;
+
+    public LineaVentaDTO() {
+    }
+
+    public LineaVentaDTO(Long idVenta, LocalDate fechaVenta, Long idVendedor, Long idCliente, BigDecimal totalVenta,
+            Long idDetalle, Long idProducto, Integer cantidad, BigDecimal precioUnitario, BigDecimal subtotal) {
+        this.idVenta = idVenta;
+        this.fechaVenta = fechaVenta;
+        this.idVendedor = idVendedor;
+        this.idCliente = idCliente;
+        this.totalVenta = totalVenta;
+        this.idDetalle = idDetalle;
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.precioUnitario = precioUnitario;
+        this.subtotal = subtotal;
+    }
+
+    public Long getIdVenta() {
+        return idVenta;
+    }
+
+    public void setIdVenta(Long idVenta) {
+        this.idVenta = idVenta;
+    }
+
+    public LocalDate getFechaVenta() {
+        return fechaVenta;
+    }
+
+    public void setFechaVenta(LocalDate fechaVenta) {
+        this.fechaVenta = fechaVenta;
+    }
+
+    public Long getIdVendedor() {
+        return idVendedor;
+    }
+
+    public void setIdVendedor(Long idVendedor) {
+        this.idVendedor = idVendedor;
+    }
+
+    public Long getIdCliente() {
+        return idCliente;
+    }
+
+    public void setIdCliente(Long idCliente) {
+        this.idCliente = idCliente;
+    }
+
+    public BigDecimal getTotalVenta() {
+        return totalVenta;
+    }
+
+    public void setTotalVenta(BigDecimal totalVenta) {
+        this.totalVenta = totalVenta;
+    }
+
+    public Long getIdDetalle() {
+        return idDetalle;
+    }
+
+    public void setIdDetalle(Long idDetalle) {
+        this.idDetalle = idDetalle;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public BigDecimal getPrecioUnitario() {
+        return precioUnitario;
+    }
+
+    public void setPrecioUnitario(BigDecimal precioUnitario) {
+        this.precioUnitario = precioUnitario;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+    }
+
+}
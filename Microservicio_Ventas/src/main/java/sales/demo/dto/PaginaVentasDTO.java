@@ -0,0 +1,41 @@
+package sales.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Página de ventas ordenada por ID con el cursor para pedir la siguiente")
+public class PaginaVentasDTO {
+
+    @Schema(description = "Ventas de la página")
+    private List<VentaDTO> ventas;
+
+    @Schema(description = "Cursor para solicitar la siguiente página; nulo si no hay más ventas", example = "MTI1", nullable = true)
+    private String siguienteCursor;
+
+    public PaginaVentasDTO() {
+    }
+
+    public PaginaVentasDTO(List<VentaDTO> ventas, String siguienteCursor) {
+        this.ventas = ventas != null ? ventas : new ArrayList<>();
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<VentaDTO> getVentas() {
+        return ventas;
+    }
+
+    public void setVentas(List<VentaDTO> ventas) {
+        this.ventas = ventas;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public void setSiguienteCursor(String siguienteCursor) {
+        this.siguienteCursor = siguienteCursor;
+    }
+
+}
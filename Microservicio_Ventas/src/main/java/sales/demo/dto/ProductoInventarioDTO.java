@@ -0,0 +1,52 @@
+package sales.demo.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Precio y stock de un producto consultado en inventario")
+public class ProductoInventarioDTO {
+
+    @Schema(description = "ID del producto", example = "5")
+    private Long idProducto;
+
+    @Schema(description = "Precio unitario del producto", example = "150.50")
+    private BigDecimal precio;
+
+    @Schema(description = "Stock disponible del producto", example = "120")
+    private Integer stock;
+
+    public ProductoInventarioDTO() {
+    }
+
+    public ProductoInventarioDTO(Long idProducto, BigDecimal precio, Integer stock) {
+        this.idProducto = idProducto;
+        this.precio = precio;
+        this.stock = stock;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    public void setPrecio(BigDecimal precio) {
+        this.precio = precio;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+}
@@ -0,0 +1,70 @@
+package sales.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Resultado del registro de una venta dentro de una carga en lote")
+public class ResultadoVentaLoteDTO {
+
+    @Schema(description = "Posición de la venta en la carga recibida", example = "0")
+    private int indice;
+
+    @Schema(description = "Indica si la venta se registró", example = "true")
+    private boolean exito;
+
+    @Schema(description = "Venta registrada; nula si no se pudo registrar", nullable = true)
+    private VentaDTO venta;
+
+    @Schema(description = "Motivo por el que no se registró la venta", example = "Stock insuficiente para el producto ID: 5", nullable = true)
+    private String error;
+
+    public ResultadoVentaLoteDTO() {
+    }
+
+    public ResultadoVentaLoteDTO(int indice, boolean exito, VentaDTO venta, String error) {
+        this.indice = indice;
+        this.exito = exito;
+        this.venta = venta;
+        this.error = error;
+    }
+
+    public static ResultadoVentaLoteDTO registrada(int indice, VentaDTO venta) {
+        return new ResultadoVentaLoteDTO(indice, true, venta, null);
+    }
+
+    public static ResultadoVentaLoteDTO rechazada(int indice, String error) {
+        return new ResultadoVentaLoteDTO(indice, false, null, error);
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    public void setIndice(int indice) {
+        this.indice = indice;
+    }
+
+    public boolean isExito() {
+        return exito;
+    }
+
+    public void setExito(boolean exito) {
+        this.exito = exito;
+    }
+
+    public VentaDTO getVenta() {
+        return venta;
+    }
+
+    public void setVenta(VentaDTO venta) {
+        this.venta = venta;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+}
@@ -0,0 +1,53 @@
+package sales.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Número de ventas e importe total de un día")
+public class ResumenDiarioVentasDTO {
+
+    @Schema(description = "Fecha de las ventas", example = "2024-06-15")
+    private LocalDate fecha;
+
+    @Schema(description = "Número de ventas del día", example = "42")
+    private Long numeroVentas;
+
+    @Schema(description = "Suma del total de las ventas del día", example = "15300.50")
+    private BigDecimal total;
+
+    public ResumenDiarioVentasDTO() {
+    }
+
+    public ResumenDiarioVentasDTO(LocalDate fecha, Long numeroVentas, BigDecimal total) {
+        this.fecha = fecha;
+        this.numeroVentas = numeroVentas;
+        this.total = total;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getNumeroVentas() {
+        return numeroVentas;
+    }
+
+    public void setNumeroVentas(Long numeroVentas) {
+        this.numeroVentas = numeroVentas;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+}
@@ -0,0 +1,64 @@
+package sales.demo.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Unidades vendidas e ingresos de un producto en un rango de fechas")
+public class ResumenProductoVentasDTO {
+
+    @Schema(description = "ID del producto", example = "5")
+    private Long idProducto;
+
+    @Schema(description = "Número de ventas que incluyen el producto", example = "37")
+    private Long numeroVentas;
+
+    @Schema(description = "Unidades vendidas", example = "85")
+    private Long cantidad;
+
+    @Schema(description = "Suma de los subtotales del producto", example = "12792.50")
+    private BigDecimal ingresos;
+
+    public ResumenProductoVentasDTO() {
+    }
+
+    public ResumenProductoVentasDTO(Long idProducto, Long numeroVentas, Long cantidad, BigDecimal ingresos) {
+        this.idProducto = idProducto;
+        this.numeroVentas = numeroVentas;
+        this.cantidad = cantidad;
+        this.ingresos = ingresos;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Long getNumeroVentas() {
+        return numeroVentas;
+    }
+
+    public void setNumeroVentas(Long numeroVentas) {
+        this.numeroVentas = numeroVentas;
+    }
+
+    public Long getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Long cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public BigDecimal getIngresos() {
+        return ingresos;
+    }
+
+    public void setIngresos(BigDecimal ingresos) {
+        this.ingresos = ingresos;
+    }
+
+}
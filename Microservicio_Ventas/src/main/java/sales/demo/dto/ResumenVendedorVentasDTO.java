@@ -0,0 +1,52 @@
+package sales.demo.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Número de ventas e importe total de un vendedor en un rango de fechas")
+public class ResumenVendedorVentasDTO {
+
+    @Schema(description = "ID del vendedor; 0 agrupa las ventas sin vendedor", example = "2")
+    private Long idVendedor;
+
+    @Schema(description = "Número de ventas del vendedor", example = "120")
+    private Long numeroVentas;
+
+    @Schema(description = "Suma del total de las ventas del vendedor", example = "48250.00")
+    private BigDecimal total;
+
+    public ResumenVendedorVentasDTO() {
+    }
+
+    public ResumenVendedorVentasDTO(Long idVendedor, Long numeroVentas, BigDecimal total) {
+        this.idVendedor = idVendedor;
+        this.numeroVentas = numeroVentas;
+        this.total = total;
+    }
+
+    public Long getIdVendedor() {
+        return idVendedor;
+    }
+
+    public void setIdVendedor(Long idVendedor) {
+        this.idVendedor = idVendedor;
+    }
+
+    public Long getNumeroVentas() {
+        return numeroVentas;
+    }
+
+    public void setNumeroVentas(Long numeroVentas) {
+        this.numeroVentas = numeroVentas;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+}
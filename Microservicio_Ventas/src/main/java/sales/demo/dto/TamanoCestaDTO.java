@@ -0,0 +1,52 @@
+package sales.demo.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Número de ventas con una cantidad dada de productos distintos")
+public class TamanoCestaDTO {
+
+    @Schema(description = "Productos distintos por venta", example = "3")
+    private Long numeroProductos;
+
+    @Schema(description = "Ventas con ese número de productos", example = "250")
+    private Long numeroVentas;
+
+    @Schema(description = "Unidades promedio por venta en este grupo", example = "4.75")
+    private BigDecimal unidadesPromedio;
+
+    public TamanoCestaDTO() {
+    }
+
+    public TamanoCestaDTO(Long numeroProductos, Long numeroVentas, BigDecimal unidadesPromedio) {
+        this.numeroProductos = numeroProductos;
+        this.numeroVentas = numeroVentas;
+        this.unidadesPromedio = unidadesPromedio;
+    }
+
+    public Long getNumeroProductos() {
+        return numeroProductos;
+    }
+
+    public void setNumeroProductos(Long numeroProductos) {
+        this.numeroProductos = numeroProductos;
+    }
+
+    public Long getNumeroVentas() {
+        return numeroVentas;
+    }
+
+    public void setNumeroVentas(Long numeroVentas) {
+        this.numeroVentas = numeroVentas;
+    }
+
+    public BigDecimal getUnidadesPromedio() {
+        return unidadesPromedio;
+    }
+
+    public void setUnidadesPromedio(BigDecimal unidadesPromedio) {
+        this.unidadesPromedio = unidadesPromedio;
+    }
+
+}
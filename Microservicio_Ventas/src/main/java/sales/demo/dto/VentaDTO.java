@@ -29,9 +29,17 @@ public class VentaDTO {
     @NotEmpty(message = "La venta debe tener al menos un detalle")
     private List<DetalleVentaDTO> detallesVenta;
 
+    @Schema(description = "Versión de la venta. Si se envía al actualizar, debe coincidir con la versión almacenada", example = "3")
+    private Long version;
+
     public VentaDTO() {
     }
 
+    public VentaDTO(Long id, Long idVendedor, Long idCliente, LocalDate fechaVenta, BigDecimal total, Long version) {
+        this(id, idVendedor, idCliente, fechaVenta, total, new ArrayList<>());
+        this.version = version;
+    }
+
     public VentaDTO(Long id, Long idVendedor, Long idCliente, LocalDate fechaVenta, BigDecimal total, List<DetalleVentaDTO> detallesVenta) {
         this.id = id;
         this.idVendedor = idVendedor;
@@ -88,5 +96,13 @@ public class VentaDTO {
     public void setDetallesVenta(List<DetalleVentaDTO> detallesVenta) {
         this.detallesVenta = detallesVenta;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     
 }
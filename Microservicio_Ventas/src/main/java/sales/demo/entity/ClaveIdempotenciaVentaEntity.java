@@ -0,0 +1,60 @@
+package sales.demo.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clave Idempotency-Key con la que se registró una venta. Se inserta en la misma
+ * transacción que la venta y se borra en la misma transacción que la elimina, así
+ * que la clave existe si y solo si la venta existe, y la clave primaria impide
+ * registrar dos ventas con la misma clave.
+ */
+@Entity
+@Table(name = "CLAVES_IDEMPOTENCIA_VENTA", indexes = {
+    @Index(name = "idx_claves_idempotencia_fecha", columnList = "fecha_creacion"),
+    @Index(name = "idx_claves_idempotencia_venta", columnList = "id_venta")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaveIdempotenciaVentaEntity {
+
+    @Id
+    @Column(name = "clave", length = 255)
+    private String clave;
+
+    @Column(name = "id_venta", nullable = false)
+    private Long idVenta;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public Long getIdVenta() {
+        return idVenta;
+    }
+
+    public void setIdVenta(Long idVenta) {
+        this.idVenta = idVenta;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+}
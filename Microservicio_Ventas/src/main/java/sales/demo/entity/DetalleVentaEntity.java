@@ -12,14 +12,17 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
-@Table(name = "DETALLES_VENTA")
+@Table(name = "DETALLES_VENTA", indexes = {
+    @Index(name = "idx_detalles_venta_venta", columnList = "id_venta")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class DetalleVentaEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_venta_seq")
+    @SequenceGenerator(name = "detalle_venta_seq", sequenceName = "SEQ_DETALLES_VENTA", allocationSize = 50)
     @Column(name = "id_detalle_venta")
     private Long id;
 
@@ -0,0 +1,7 @@
+package sales.demo.entity;
+
+public enum EstadoMovimiento {
+    PENDIENTE,
+    ENVIADO,
+    FALLIDO
+}
@@ -12,14 +12,17 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "HISTORIAL_VENTA")
+@Table(name = "HISTORIAL_VENTA", indexes = {
+    @Index(name = "idx_historial_venta_venta_fecha", columnList = "id_venta, fecha_evento")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class HistorialVentaEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historial_venta_seq")
+    @SequenceGenerator(name = "historial_venta_seq", sequenceName = "SEQ_HISTORIAL_VENTA", allocationSize = 50)
     @Column(name = "id_historial_venta")
     private Long id;
 
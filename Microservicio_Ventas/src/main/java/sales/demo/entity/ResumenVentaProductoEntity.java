@@ -0,0 +1,67 @@
+package sales.demo.entity;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Acumulado diario de ventas por vendedor y producto. Las filas se mantienen
+ * con sentencias INSERT ... ON DUPLICATE KEY UPDATE desde
+ * {@link sales.demo.repositories.ResumenVentaProductoRepository}.
+ */
+@Entity
+@Table(name = "RESUMEN_VENTAS_DIARIO_PRODUCTO")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaProductoEntity {
+
+    @EmbeddedId
+    private ResumenVentaProductoId id;
+
+    // Ventas que incluyen el producto
+    @Column(name = "numero_ventas", nullable = false)
+    private Long numeroVentas;
+
+    @Column(name = "cantidad", nullable = false)
+    private Long cantidad;
+
+    @Column(name = "ingresos", nullable = false)
+    private BigDecimal ingresos;
+
+    public ResumenVentaProductoId getId() {
+        return id;
+    }
+
+    public void setId(ResumenVentaProductoId id) {
+        this.id = id;
+    }
+
+    public Long getNumeroVentas() {
+        return numeroVentas;
+    }
+
+    public void setNumeroVentas(Long numeroVentas) {
+        this.numeroVentas = numeroVentas;
+    }
+
+    public Long getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Long cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public BigDecimal getIngresos() {
+        return ingresos;
+    }
+
+    public void setIngresos(BigDecimal ingresos) {
+        this.ingresos = ingresos;
+    }
+
+}
@@ -0,0 +1,64 @@
+package sales.demo.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaProductoId implements Serializable {
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "id_vendedor", nullable = false)
+    private Long idVendedor;
+
+    @Column(name = "id_producto", nullable = false)
+    private Long idProducto;
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getIdVendedor() {
+        return idVendedor;
+    }
+
+    public void setIdVendedor(Long idVendedor) {
+        this.idVendedor = idVendedor;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ResumenVentaProductoId)) return false;
+        ResumenVentaProductoId that = (ResumenVentaProductoId) o;
+        return Objects.equals(fecha, that.fecha) && Objects.equals(idVendedor, that.idVendedor)
+            && Objects.equals(idProducto, that.idProducto);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fecha, idVendedor, idProducto);
+    }
+
+}
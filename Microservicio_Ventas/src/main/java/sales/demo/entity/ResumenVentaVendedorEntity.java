@@ -0,0 +1,54 @@
+package sales.demo.entity;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Acumulado diario de ventas por vendedor. Se guarda aparte del acumulado por
+ * producto porque una venta con varios productos solo debe contarse una vez.
+ */
+@Entity
+@Table(name = "RESUMEN_VENTAS_DIARIO_VENDEDOR")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaVendedorEntity {
+
+    @EmbeddedId
+    private ResumenVentaVendedorId id;
+
+    @Column(name = "numero_ventas", nullable = false)
+    private Long numeroVentas;
+
+    @Column(name = "total", nullable = false)
+    private BigDecimal total;
+
+    public ResumenVentaVendedorId getId() {
+        return id;
+    }
+
+    public void setId(ResumenVentaVendedorId id) {
+        this.id = id;
+    }
+
+    public Long getNumeroVentas() {
+        return numeroVentas;
+    }
+
+    public void setNumeroVentas(Long numeroVentas) {
+        this.numeroVentas = numeroVentas;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+}
@@ -0,0 +1,52 @@
+package sales.demo.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaVendedorId implements Serializable {
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "id_vendedor", nullable = false)
+    private Long idVendedor;
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getIdVendedor() {
+        return idVendedor;
+    }
+
+    public void setIdVendedor(Long idVendedor) {
+        this.idVendedor = idVendedor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ResumenVentaVendedorId)) return false;
+        ResumenVentaVendedorId that = (ResumenVentaVendedorId) o;
+        return Objects.equals(fecha, that.fecha) && Objects.equals(idVendedor, that.idVendedor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fecha, idVendedor);
+    }
+
+}
@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.ArrayList;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import jakarta.persistence.*;
@@ -13,14 +14,19 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
-@Table(name = "VENTAS")
+@Table(name = "VENTAS", indexes = {
+    @Index(name = "idx_ventas_vendedor_fecha", columnList = "id_vendedor, fecha_venta"),
+    @Index(name = "idx_ventas_cliente_fecha", columnList = "id_cliente, fecha_venta"),
+    @Index(name = "idx_ventas_fecha", columnList = "fecha_venta")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class VentaEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venta_seq")
+    @SequenceGenerator(name = "venta_seq", sequenceName = "SEQ_VENTAS", allocationSize = 50)
     @Column(name = "id_venta")
     private Long id;
 
@@ -37,7 +43,13 @@ public class VentaEntity {
     @Column(name = "total")
     private BigDecimal total;
 
-    @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // El valor por defecto da versión 0 a las ventas existentes cuando ddl-auto añade la columna
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<DetalleVentaEntity> detalles = new ArrayList<>();
 
     @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -100,6 +112,14 @@ public class VentaEntity {
         this.total = total;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<DetalleVentaEntity> getDetalles() {
         return detalles;
     }
@@ -0,0 +1,17 @@
+package sales.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La llamada al inventario se rechazó sin intentarla: el circuito está abierto,
+ * no quedan llamadas concurrentes disponibles o se agotó el plazo de la petición.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class InventarioNoDisponibleException extends RuntimeException {
+
+    public InventarioNoDisponibleException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,17 @@
+package sales.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * El cursor o el límite de un listado paginado no son válidos: el cursor no fue
+ * devuelto por una página anterior o el límite está fuera del rango permitido.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class PaginacionInvalidaException extends RuntimeException {
+
+    public PaginacionInvalidaException(String message) {
+        super(message);
+    }
+
+}
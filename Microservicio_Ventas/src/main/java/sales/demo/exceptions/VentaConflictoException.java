@@ -0,0 +1,17 @@
+package sales.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La venta cambió desde que el cliente la leyó, o la modificó otra petición
+ * mientras se actualizaba.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class VentaConflictoException extends RuntimeException {
+
+    public VentaConflictoException(Long id) {
+        super("La venta con ID " + id + " fue modificada por otro usuario; vuelva a consultarla e inténtelo de nuevo");
+    }
+
+}
@@ -1,13 +1,17 @@
 package sales.demo.mapper;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
+import jakarta.persistence.Tuple;
 import sales.demo.dto.DetalleVentaDTO;
 import sales.demo.dto.HistorialVentaDTO;
+import sales.demo.dto.TamanoCestaDTO;
 import sales.demo.dto.VentaDTO;
 import sales.demo.entity.DetalleVentaEntity;
 import sales.demo.entity.HistorialVentaEntity;
@@ -22,8 +26,10 @@ public class VentaMapper {
         
         List<DetalleVentaDTO> detallesDTO = entity.getDetalles().stream().map(this::toDetalleDTO).collect(Collectors.toList());
 
-        return new VentaDTO(entity.getId(), entity.getIdVendedor(), entity.getIdCliente(),
+        VentaDTO dto = new VentaDTO(entity.getId(), entity.getIdVendedor(), entity.getIdCliente(),
                 entity.getFechaVenta(), entity.getTotal(), detallesDTO);
+        dto.setVersion(entity.getVersion());
+        return dto;
     }
 
     public VentaEntity toEntity(VentaDTO dto) {
@@ -53,6 +59,25 @@ public class VentaMapper {
                 entity.getPrecioUnitario(), entity.getSubtotal());
     }
 
+    public DetalleVentaDTO toDetalleDTO(Tuple fila) {
+        if (fila == null)
+            return null;
+
+        return new DetalleVentaDTO(fila.get("id", Long.class), fila.get("idProducto", Long.class),
+                fila.get("cantidad", Integer.class), fila.get("precioUnitario", BigDecimal.class),
+                fila.get("subtotal", BigDecimal.class));
+    }
+
+    public TamanoCestaDTO toTamanoCestaDTO(Tuple fila) {
+        if (fila == null)
+            return null;
+
+        // Los tipos numéricos de una consulta nativa dependen del driver
+        return new TamanoCestaDTO(((Number) fila.get("numeroProductos")).longValue(),
+                ((Number) fila.get("numeroVentas")).longValue(),
+                new BigDecimal(fila.get("unidadesPromedio").toString()).setScale(2, RoundingMode.HALF_UP));
+    }
+
     public DetalleVentaEntity detalleToEntity(DetalleVentaDTO dto, VentaEntity venta) {
         if (dto == null)
             return null;
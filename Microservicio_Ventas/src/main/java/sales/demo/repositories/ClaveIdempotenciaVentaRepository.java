@@ -0,0 +1,35 @@
+package sales.demo.repositories;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+import sales.demo.entity.ClaveIdempotenciaVentaEntity;
+
+public interface ClaveIdempotenciaVentaRepository extends JpaRepository<ClaveIdempotenciaVentaEntity, String> {
+
+    // INSERT explícito en lugar de save(): con un ID asignado save() haría un merge y podría
+    // sobrescribir la clave de otra venta en vez de fallar por clave duplicada. Se ejecuta
+    // antes que las inserciones de la venta, así que un duplicado falla sin escribir nada más
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query(value = "INSERT INTO CLAVES_IDEMPOTENCIA_VENTA (clave, id_venta, fecha_creacion) "
+        + "VALUES (:clave, :idVenta, :fechaCreacion)", nativeQuery = true)
+    void registrar(@Param("clave") String clave, @Param("idVenta") Long idVenta,
+        @Param("fechaCreacion") LocalDateTime fechaCreacion);
+
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotenciaVentaEntity c WHERE c.idVenta = :idVenta")
+    int deleteByIdVenta(@Param("idVenta") Long idVenta);
+
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotenciaVentaEntity c WHERE c.fechaCreacion < :limite")
+    int deleteByFechaCreacionBefore(@Param("limite") LocalDateTime limite);
+
+}
@@ -1,13 +1,48 @@
 package sales.demo.repositories;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.Tuple;
+import sales.demo.dto.LineaVentaDTO;
 import sales.demo.entity.DetalleVentaEntity;
 
 public interface DetalleVentaRepository extends JpaRepository<DetalleVentaEntity, Long> {
     
     List<DetalleVentaEntity> findByVentaId(Long idVenta);
+
+    @Query("SELECT d.venta.id AS idVenta, d.id AS id, d.idProducto AS idProducto, d.cantidad AS cantidad, "
+        + "d.precioUnitario AS precioUnitario, d.subtotal AS subtotal "
+        + "FROM DetalleVentaEntity d WHERE d.venta.id IN :idsVenta ORDER BY d.id")
+    List<Tuple> findFilasByVentaIdIn(@Param("idsVenta") Collection<Long> idsVenta);
+
+    // Líneas de venta aplanadas para exportación, leídas con un cursor de solo avance. El orden
+    // sigue idx_ventas_fecha e idx_detalles_venta_venta para no ordenar el resultado aparte
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new sales.demo.dto.LineaVentaDTO(v.id, v.fechaVenta, v.idVendedor, v.idCliente, v.total, "
+        + "d.id, d.idProducto, d.cantidad, d.precioUnitario, d.subtotal) "
+        + "FROM DetalleVentaEntity d JOIN d.venta v WHERE v.fechaVenta BETWEEN :fechaInicio AND :fechaFin "
+        + "ORDER BY v.fechaVenta, v.id, d.id")
+    Stream<LineaVentaDTO> streamLineasByFechaVentaBetween(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin);
+
+    // Distribución del tamaño de las ventas: se agrupa cada venta por sus detalles y luego
+    // las ventas por número de productos, sin devolver filas de detalle a la aplicación
+    @Query(value = "SELECT c.numero_productos AS numeroProductos, COUNT(*) AS numeroVentas, AVG(c.unidades) AS unidadesPromedio "
+        + "FROM (SELECT d.id_venta, COUNT(*) AS numero_productos, SUM(d.cantidad) AS unidades "
+        + "FROM VENTAS v JOIN DETALLES_VENTA d ON d.id_venta = v.id_venta "
+        + "WHERE v.fecha_venta BETWEEN :fechaInicio AND :fechaFin GROUP BY d.id_venta) c "
+        + "GROUP BY c.numero_productos ORDER BY c.numero_productos", nativeQuery = true)
+    List<Tuple> findDistribucionTamanoCesta(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin);
     
 }
@@ -0,0 +1,23 @@
+package sales.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import sales.demo.entity.EstadoMovimiento;
+import sales.demo.entity.MovimientoStockOutboxEntity;
+
+public interface MovimientoStockOutboxRepository extends JpaRepository<MovimientoStockOutboxEntity, Long> {
+
+    @Query("SELECT m FROM MovimientoStockOutboxEntity m WHERE m.estado = :estado AND m.proximoIntento <= :ahora ORDER BY m.id")
+    List<MovimientoStockOutboxEntity> findListosParaEnvio(@Param("estado") EstadoMovimiento estado,
+        @Param("ahora") LocalDateTime ahora, Pageable pageable);
+
+    Optional<MovimientoStockOutboxEntity> findFirstByEstadoOrderByIdAsc(EstadoMovimiento estado);
+
+}
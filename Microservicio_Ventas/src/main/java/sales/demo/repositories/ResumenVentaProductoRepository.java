@@ -0,0 +1,68 @@
+package sales.demo.repositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+import sales.demo.dto.ResumenProductoVentasDTO;
+import sales.demo.entity.ResumenVentaProductoEntity;
+import sales.demo.entity.ResumenVentaProductoId;
+
+public interface ResumenVentaProductoRepository extends JpaRepository<ResumenVentaProductoEntity, ResumenVentaProductoId> {
+
+    // Suma los incrementos a la fila del día, vendedor y producto, creándola si no existe.
+    // Los incrementos negativos descuentan una venta actualizada o eliminada. La sentencia no
+    // depende de las entidades pendientes, así que no fuerza un flush que corte los lotes JDBC
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query(value = "INSERT INTO RESUMEN_VENTAS_DIARIO_PRODUCTO (fecha, id_vendedor, id_producto, numero_ventas, cantidad, ingresos) "
+        + "VALUES (:fecha, :idVendedor, :idProducto, :numeroVentas, :cantidad, :ingresos) "
+        + "ON DUPLICATE KEY UPDATE numero_ventas = numero_ventas + VALUES(numero_ventas), "
+        + "cantidad = cantidad + VALUES(cantidad), ingresos = ingresos + VALUES(ingresos)", nativeQuery = true)
+    void acumular(@Param("fecha") LocalDate fecha, @Param("idVendedor") Long idVendedor,
+        @Param("idProducto") Long idProducto, @Param("numeroVentas") long numeroVentas,
+        @Param("cantidad") long cantidad, @Param("ingresos") BigDecimal ingresos);
+
+    @Modifying
+    @Query("DELETE FROM ResumenVentaProductoEntity r WHERE r.id.fecha = :fecha")
+    void deleteByFecha(@Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query(value = "INSERT INTO RESUMEN_VENTAS_DIARIO_PRODUCTO (fecha, id_vendedor, id_producto, numero_ventas, cantidad, ingresos) "
+        + "SELECT v.fecha_venta, COALESCE(v.id_vendedor, 0), d.id_producto, COUNT(DISTINCT v.id_venta), SUM(d.cantidad), SUM(d.subtotal) "
+        + "FROM VENTAS v JOIN DETALLES_VENTA d ON d.id_venta = v.id_venta "
+        + "WHERE v.fecha_venta = :fecha "
+        + "GROUP BY v.fecha_venta, COALESCE(v.id_vendedor, 0), d.id_producto", nativeQuery = true)
+    void reconstruirFecha(@Param("fecha") LocalDate fecha);
+
+    @Query("SELECT new sales.demo.dto.ResumenProductoVentasDTO(r.id.idProducto, SUM(r.numeroVentas), SUM(r.cantidad), SUM(r.ingresos)) "
+        + "FROM ResumenVentaProductoEntity r "
+        + "WHERE r.id.fecha BETWEEN :fechaInicio AND :fechaFin AND (:idVendedor IS NULL OR r.id.idVendedor = :idVendedor) "
+        + "GROUP BY r.id.idProducto ORDER BY SUM(r.ingresos) DESC, r.id.idProducto")
+    List<ResumenProductoVentasDTO> sumarPorProducto(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin, @Param("idVendedor") Long idVendedor);
+
+    // Rankings de productos: la base de datos agrupa, ordena y devuelve solo las primeras filas
+
+    @Query("SELECT new sales.demo.dto.ResumenProductoVentasDTO(r.id.idProducto, SUM(r.numeroVentas), SUM(r.cantidad), SUM(r.ingresos)) "
+        + "FROM ResumenVentaProductoEntity r WHERE r.id.fecha BETWEEN :fechaInicio AND :fechaFin "
+        + "GROUP BY r.id.idProducto ORDER BY SUM(r.cantidad) DESC, r.id.idProducto")
+    List<ResumenProductoVentasDTO> findTopPorCantidad(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin, Pageable pageable);
+
+    @Query("SELECT new sales.demo.dto.ResumenProductoVentasDTO(r.id.idProducto, SUM(r.numeroVentas), SUM(r.cantidad), SUM(r.ingresos)) "
+        + "FROM ResumenVentaProductoEntity r WHERE r.id.fecha BETWEEN :fechaInicio AND :fechaFin "
+        + "GROUP BY r.id.idProducto ORDER BY SUM(r.ingresos) DESC, r.id.idProducto")
+    List<ResumenProductoVentasDTO> findTopPorIngresos(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin, Pageable pageable);
+
+}
@@ -0,0 +1,62 @@
+package sales.demo.repositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+import sales.demo.dto.ResumenDiarioVentasDTO;
+import sales.demo.dto.ResumenVendedorVentasDTO;
+import sales.demo.entity.ResumenVentaVendedorEntity;
+import sales.demo.entity.ResumenVentaVendedorId;
+
+public interface ResumenVentaVendedorRepository extends JpaRepository<ResumenVentaVendedorEntity, ResumenVentaVendedorId> {
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query(value = "INSERT INTO RESUMEN_VENTAS_DIARIO_VENDEDOR (fecha, id_vendedor, numero_ventas, total) "
+        + "VALUES (:fecha, :idVendedor, :numeroVentas, :total) "
+        + "ON DUPLICATE KEY UPDATE numero_ventas = numero_ventas + VALUES(numero_ventas), total = total + VALUES(total)",
+        nativeQuery = true)
+    void acumular(@Param("fecha") LocalDate fecha, @Param("idVendedor") Long idVendedor,
+        @Param("numeroVentas") long numeroVentas, @Param("total") BigDecimal total);
+
+    @Modifying
+    @Query("DELETE FROM ResumenVentaVendedorEntity r WHERE r.id.fecha = :fecha")
+    void deleteByFecha(@Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query(value = "INSERT INTO RESUMEN_VENTAS_DIARIO_VENDEDOR (fecha, id_vendedor, numero_ventas, total) "
+        + "SELECT v.fecha_venta, COALESCE(v.id_vendedor, 0), COUNT(*), SUM(COALESCE(v.total, 0)) "
+        + "FROM VENTAS v WHERE v.fecha_venta = :fecha "
+        + "GROUP BY v.fecha_venta, COALESCE(v.id_vendedor, 0)", nativeQuery = true)
+    void reconstruirFecha(@Param("fecha") LocalDate fecha);
+
+    @Query("SELECT new sales.demo.dto.ResumenDiarioVentasDTO(r.id.fecha, SUM(r.numeroVentas), SUM(r.total)) "
+        + "FROM ResumenVentaVendedorEntity r "
+        + "WHERE r.id.fecha BETWEEN :fechaInicio AND :fechaFin AND (:idVendedor IS NULL OR r.id.idVendedor = :idVendedor) "
+        + "GROUP BY r.id.fecha ORDER BY r.id.fecha")
+    List<ResumenDiarioVentasDTO> sumarPorFecha(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin, @Param("idVendedor") Long idVendedor);
+
+    @Query("SELECT new sales.demo.dto.ResumenVendedorVentasDTO(r.id.idVendedor, SUM(r.numeroVentas), SUM(r.total)) "
+        + "FROM ResumenVentaVendedorEntity r WHERE r.id.fecha BETWEEN :fechaInicio AND :fechaFin "
+        + "GROUP BY r.id.idVendedor ORDER BY r.id.idVendedor")
+    List<ResumenVendedorVentasDTO> sumarPorVendedor(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin);
+
+    @Query("SELECT new sales.demo.dto.ResumenVendedorVentasDTO(r.id.idVendedor, SUM(r.numeroVentas), SUM(r.total)) "
+        + "FROM ResumenVentaVendedorEntity r WHERE r.id.fecha BETWEEN :fechaInicio AND :fechaFin "
+        + "GROUP BY r.id.idVendedor ORDER BY SUM(r.total) DESC, r.id.idVendedor")
+    List<ResumenVendedorVentasDTO> findRankingPorTotal(@Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin, Pageable pageable);
+
+}
@@ -3,20 +3,35 @@ package sales.demo.repositories;
 import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import sales.demo.dto.VentaDTO;
 import sales.demo.entity.VentaEntity;
 
 public interface VentaRepository extends JpaRepository<VentaEntity, Long> {
 
-    List<VentaEntity> findByIdCliente(Long idCliente);
+    // Consultas de lectura que proyectan directamente a VentaDTO sin cargar entidades en el
+    // contexto de persistencia; los detalles se añaden con DetalleVentaRepository.findFilasByVentaIdIn.
+    // Los filtros por cliente, vendedor y fecha ordenan por (fecha_venta, id_venta) para recorrer
+    // los índices de VentaEntity en orden sin ordenar el resultado aparte
 
-    List<VentaEntity> findByIdVendedor(Long idVendedor);
+    String RESUMEN_VENTA = "SELECT new sales.demo.dto.VentaDTO(v.id, v.idVendedor, v.idCliente, v.fechaVenta, v.total, v.version) "
+        + "FROM VentaEntity v ";
 
-    @Query("SELECT v FROM VentaEntity v WHERE v.fechaVenta BETWEEN :fechaInicio AND :fechaFin")
-    List<VentaEntity> findByFechaVentaBetween(@Param("fechaInicio") LocalDate fechaInicio, 
+    @Query(RESUMEN_VENTA + "WHERE v.idCliente = :idCliente ORDER BY v.fechaVenta, v.id")
+    List<VentaDTO> findResumenesByIdCliente(@Param("idCliente") Long idCliente);
+
+    @Query(RESUMEN_VENTA + "WHERE v.idVendedor = :idVendedor ORDER BY v.fechaVenta, v.id")
+    List<VentaDTO> findResumenesByIdVendedor(@Param("idVendedor") Long idVendedor);
+
+    @Query(RESUMEN_VENTA + "WHERE v.fechaVenta BETWEEN :fechaInicio AND :fechaFin ORDER BY v.fechaVenta, v.id")
+    List<VentaDTO> findResumenesByFechaVentaBetween(@Param("fechaInicio") LocalDate fechaInicio,
         @Param("fechaFin") LocalDate fechaFin);
 
-}
\ No newline at end of file
+    @Query(RESUMEN_VENTA + "WHERE v.id > :idDesde ORDER BY v.id")
+    List<VentaDTO> findResumenesSiguientes(@Param("idDesde") Long idDesde, Pageable pageable);
+
+}
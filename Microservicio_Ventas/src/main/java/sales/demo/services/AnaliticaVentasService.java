@@ -0,0 +1,72 @@
+package sales.demo.services;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import sales.demo.dto.CriterioRanking;
+import sales.demo.dto.ResumenProductoVentasDTO;
+import sales.demo.dto.ResumenVendedorVentasDTO;
+import sales.demo.dto.TamanoCestaDTO;
+import sales.demo.mapper.VentaMapper;
+import sales.demo.repositories.DetalleVentaRepository;
+import sales.demo.repositories.ResumenVentaProductoRepository;
+import sales.demo.repositories.ResumenVentaVendedorRepository;
+
+/**
+ * Consultas analíticas sobre rangos de fechas. Todas se agregan en la base de
+ * datos: los rankings leen los acumulados diarios que mantiene
+ * {@link ResumenVentasService} y la distribución del tamaño de las ventas se
+ * agrupa sobre DETALLES_VENTA, de modo que la aplicación solo recibe las filas
+ * del resultado.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AnaliticaVentasService {
+
+    private final ResumenVentaProductoRepository resumenProductoRepository;
+    private final ResumenVentaVendedorRepository resumenVendedorRepository;
+    private final DetalleVentaRepository detalleVentaRepository;
+    private final VentaMapper ventaMapper;
+
+    public AnaliticaVentasService(ResumenVentaProductoRepository resumenProductoRepository,
+            ResumenVentaVendedorRepository resumenVendedorRepository, DetalleVentaRepository detalleVentaRepository,
+            VentaMapper ventaMapper) {
+        this.resumenProductoRepository = resumenProductoRepository;
+        this.resumenVendedorRepository = resumenVendedorRepository;
+        this.detalleVentaRepository = detalleVentaRepository;
+        this.ventaMapper = ventaMapper;
+    }
+
+    public List<ResumenProductoVentasDTO> obtenerProductosMasVendidos(LocalDate fechaInicio, LocalDate fechaFin,
+            CriterioRanking criterio, int limite) {
+        validarRango(fechaInicio, fechaFin);
+
+        PageRequest primeros = PageRequest.of(0, limite);
+        return criterio == CriterioRanking.CANTIDAD
+            ? resumenProductoRepository.findTopPorCantidad(fechaInicio, fechaFin, primeros)
+            : resumenProductoRepository.findTopPorIngresos(fechaInicio, fechaFin, primeros);
+    }
+
+    public List<ResumenVendedorVentasDTO> obtenerRankingVendedores(LocalDate fechaInicio, LocalDate fechaFin, int limite) {
+        validarRango(fechaInicio, fechaFin);
+        return resumenVendedorRepository.findRankingPorTotal(fechaInicio, fechaFin, PageRequest.of(0, limite));
+    }
+
+    public List<TamanoCestaDTO> obtenerDistribucionTamanoCesta(LocalDate fechaInicio, LocalDate fechaFin) {
+        validarRango(fechaInicio, fechaFin);
+        return detalleVentaRepository.findDistribucionTamanoCesta(fechaInicio, fechaFin).stream()
+            .map(ventaMapper::toTamanoCestaDTO).collect(Collectors.toList());
+    }
+
+    private void validarRango(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin.");
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package sales.demo.services;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Reparte las llamadas al inventario entre las réplicas configuradas en
+ * inventario.urls. Cada llamada va a la réplica disponible con menos llamadas en
+ * curso, rotando entre las empatadas. Una réplica que acumula fallos de
+ * disponibilidad seguidos (ver
+ * {@link ResilienciaInventario#esFalloDeDisponibilidad(RuntimeException)}) se
+ * expulsa durante un tiempo que crece con cada expulsión, y una comprobación
+ * de salud periódica la readmite en cuanto vuelve a responder. Si la conexión a
+ * una réplica falla, la llamada se reintenta en otra.
+ */
+@Component
+public class BalanceadorInventario {
+
+    private final RestTemplate restTemplate;
+    private final ResilienciaInventario resilienciaInventario;
+    private final List<Instancia> instancias = new ArrayList<>();
+    private final AtomicInteger turno = new AtomicInteger();
+    private final String rutaSalud;
+    private final int fallosExpulsion;
+    private final long expulsionBaseNanos;
+    private final long expulsionMaximaNanos;
+
+    public BalanceadorInventario(RestTemplate restTemplate, ResilienciaInventario resilienciaInventario,
+            MeterRegistry meterRegistry,
+            @Value("${inventario.urls:http://localhost:8016/farmasync/inventario}") List<String> urls,
+            @Value("${inventario.salud.ruta:/salud}") String rutaSalud,
+            @Value("${inventario.balanceo.fallos-expulsion:3}") int fallosExpulsion,
+            @Value("${inventario.balanceo.expulsion-base-ms:10000}") long expulsionBaseMs,
+            @Value("${inventario.balanceo.expulsion-maxima-ms:300000}") long expulsionMaximaMs) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("Debe configurarse al menos una URL de inventario en inventario.urls");
+        }
+
+        this.restTemplate = restTemplate;
+        this.resilienciaInventario = resilienciaInventario;
+        this.rutaSalud = rutaSalud;
+        this.fallosExpulsion = fallosExpulsion;
+        this.expulsionBaseNanos = TimeUnit.MILLISECONDS.toNanos(expulsionBaseMs);
+        this.expulsionMaximaNanos = TimeUnit.MILLISECONDS.toNanos(expulsionMaximaMs);
+
+        for (String url : urls) {
+            Instancia instancia = new Instancia(url.trim().replaceAll("/+$", ""), meterRegistry);
+            instancias.add(instancia);
+            Gauge.builder("inventario.balanceo.en-curso", instancia.enCurso, AtomicInteger::get)
+                .description("Llamadas en curso a la réplica de inventario")
+                .tag("instancia", instancia.url)
+                .register(meterRegistry);
+            Gauge.builder("inventario.balanceo.expulsada", instancia, i -> i.expulsada(System.nanoTime()) ? 1 : 0)
+                .description("1 si la réplica de inventario está expulsada del balanceo")
+                .tag("instancia", instancia.url)
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Ejecuta la llamada contra la URL base de una réplica, dentro de
+     * {@link ResilienciaInventario}. Si no se puede conectar con la réplica elegida
+     * se reintenta en cada una de las demás antes de fallar.
+     */
+    public <T> T ejecutar(Function<String, T> llamada) {
+        return resilienciaInventario.ejecutar(() -> {
+            List<Instancia> intentadas = new ArrayList<>(instancias.size());
+            while (true) {
+                Instancia instancia = seleccionar(intentadas);
+                intentadas.add(instancia);
+                try {
+                    return llamar(instancia, llamada);
+                } catch (ResourceAccessException e) {
+                    boolean sinConexion = e.getCause() instanceof ConnectException;
+                    if (!sinConexion || intentadas.size() == instancias.size()) {
+                        throw e;
+                    }
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.salud.intervalo-ms:5000}")
+    public void comprobarSalud() {
+        for (Instancia instancia : instancias) {
+            String urlSalud = URI.create(instancia.url).resolve(rutaSalud).toString();
+            try {
+                restTemplate.getForObject(urlSalud, String.class);
+                instancia.readmitir();
+            } catch (HttpClientErrorException e) {
+                // Responde, aunque no exponga la ruta de salud
+                instancia.readmitir();
+            } catch (RestClientException e) {
+                instancia.expulsar(System.nanoTime());
+            }
+        }
+    }
+
+    private <T> T llamar(Instancia instancia, Function<String, T> llamada) {
+        instancia.enCurso.incrementAndGet();
+        instancia.peticiones.increment();
+        try {
+            T resultado = llamada.apply(instancia.url);
+            instancia.registrarExito();
+            return resultado;
+        } catch (RuntimeException e) {
+            if (ResilienciaInventario.esFalloDeDisponibilidad(e)) {
+                instancia.registrarFallo(System.nanoTime());
+            } else {
+                // Un rechazo de negocio, como un stock insuficiente, muestra que la réplica responde
+                instancia.registrarExito();
+            }
+            throw e;
+        } finally {
+            instancia.enCurso.decrementAndGet();
+        }
+    }
+
+    /**
+     * Elige, entre las réplicas no expulsadas y aún no intentadas, la que tiene
+     * menos llamadas en curso; el punto de partida rota para repartir los empates.
+     * Si todas están expulsadas se usan igualmente, para no rechazar todo el
+     * tráfico por una comprobación de salud equivocada.
+     */
+    private Instancia seleccionar(List<Instancia> excluidas) {
+        long ahora = System.nanoTime();
+        int inicio = Math.floorMod(turno.getAndIncrement(), instancias.size());
+
+        Instancia elegida = null;
+        Instancia respaldo = null;
+        for (int i = 0; i < instancias.size(); i++) {
+            Instancia candidata = instancias.get((inicio + i) % instancias.size());
+            if (excluidas.contains(candidata)) {
+                continue;
+            }
+            if (respaldo == null || candidata.enCurso.get() < respaldo.enCurso.get()) {
+                respaldo = candidata;
+            }
+            if (!candidata.expulsada(ahora)
+                    && (elegida == null || candidata.enCurso.get() < elegida.enCurso.get())) {
+                elegida = candidata;
+            }
+        }
+        return elegida != null ? elegida : respaldo;
+    }
+
+    private final class Instancia {
+        private final String url;
+        private final AtomicInteger enCurso = new AtomicInteger();
+        private final AtomicInteger fallosSeguidos = new AtomicInteger();
+        private final Counter peticiones;
+        private volatile long expulsadaHasta;
+        private volatile boolean enExpulsion;
+        private int expulsiones;
+
+        private Instancia(String url, MeterRegistry meterRegistry) {
+            this.url = url;
+            this.peticiones = Counter.builder("inventario.balanceo.peticiones")
+                .description("Llamadas enviadas a la réplica de inventario")
+                .tag("instancia", url)
+                .register(meterRegistry);
+        }
+
+        private boolean expulsada(long ahora) {
+            return enExpulsion && ahora - expulsadaHasta < 0;
+        }
+
+        private void registrarExito() {
+            fallosSeguidos.set(0);
+        }
+
+        private void registrarFallo(long ahora) {
+            if (fallosSeguidos.incrementAndGet() >= fallosExpulsion) {
+                expulsar(ahora);
+            }
+        }
+
+        private synchronized void expulsar(long ahora) {
+            if (expulsada(ahora)) {
+                return;
+            }
+            // El tiempo de expulsión se duplica con cada expulsión seguida hasta el máximo
+            long duracion = Math.min(expulsionBaseNanos << Math.min(expulsiones, 20), expulsionMaximaNanos);
+            expulsiones++;
+            expulsadaHasta = ahora + duracion;
+            enExpulsion = true;
+            fallosSeguidos.set(0);
+        }
+
+        private synchronized void readmitir() {
+            if (enExpulsion) {
+                enExpulsion = false;
+            } else {
+                expulsiones = 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package sales.demo.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Agrupa los descuentos de stock que llegan dentro de una ventana corta en una
+ * sola petición de movimientos al inventario. Si la réplica que atiende el lote
+ * no expone el endpoint de lote se recurre a llamadas individuales concurrentes,
+ * y a esa réplica no se le envían lotes hasta pasado un tiempo. Cada movimiento
+ * viaja con su clave de idempotencia para que los reintentos no descuenten el
+ * stock dos veces.
+ */
+@Service
+public class DescuentoStockBatcher {
+
+    // Resultado de un envío que la réplica elegida no admite como lote
+    @SuppressWarnings("unchecked")
+    private static final Map<String, Object>[] SIN_LOTE = new Map[0];
+
+    private final RestTemplate restTemplate;
+    private final BalanceadorInventario balanceadorInventario;
+    private final ThreadPoolTaskExecutor inventarioExecutor;
+    private final long ventanaMs;
+    private final int maxMovimientosPorLote;
+    private final long reintentoLoteNanos;
+
+    private final BlockingQueue<SolicitudDescuento> cola = new LinkedBlockingQueue<>();
+    // URL de cada réplica sin endpoint de lote y momento (System.nanoTime) hasta el que no se le envían lotes
+    private final Map<String, Long> replicasSinLote = new ConcurrentHashMap<>();
+    private Thread despachador;
+
+    public DescuentoStockBatcher(RestTemplate restTemplate, BalanceadorInventario balanceadorInventario,
+            @Qualifier("inventarioExecutor") ThreadPoolTaskExecutor inventarioExecutor,
+            @Value("${inventario.salidas.ventana-ms:5}") long ventanaMs,
+            @Value("${inventario.salidas.max-movimientos:200}") int maxMovimientosPorLote,
+            @Value("${inventario.salidas.reintento-lote-ms:60000}") long reintentoLoteMs) {
+        this.restTemplate = restTemplate;
+        this.balanceadorInventario = balanceadorInventario;
+        this.inventarioExecutor = inventarioExecutor;
+        this.ventanaMs = ventanaMs;
+        this.maxMovimientosPorLote = maxMovimientosPorLote;
+        this.reintentoLoteNanos = TimeUnit.MILLISECONDS.toNanos(reintentoLoteMs);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        despachador = new Thread(this::despachar, "inventario-salidas");
+        despachador.setDaemon(true);
+        despachador.start();
+    }
+
+    @PreDestroy
+    void detener() {
+        despachador.interrupt();
+    }
+
+    /**
+     * Encola el descuento sin bloquear; el resultado se completa cuando el lote que
+     * lo contiene ha sido confirmado por el inventario.
+     */
+    public CompletableFuture<Void> descontarStockAsync(Long idProducto, Integer cantidad, String claveIdempotencia) {
+        SolicitudDescuento solicitud = new SolicitudDescuento(idProducto, cantidad, claveIdempotencia);
+        cola.add(solicitud);
+        return solicitud.resultado;
+    }
+
+    private void despachar() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<SolicitudDescuento> lote = new ArrayList<>();
+                lote.add(cola.take());
+
+                // Esperar a otros movimientos hasta que se cierre la ventana o se llene el lote
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+                while (lote.size() < maxMovimientosPorLote) {
+                    SolicitudDescuento siguiente = cola.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+
+                CompletableFuture.runAsync(() -> enviarLote(lote), inventarioExecutor);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void enviarLote(List<SolicitudDescuento> lote) {
+        List<Map<String, Object>> movimientos = new ArrayList<>();
+        for (SolicitudDescuento solicitud : lote) {
+            Map<String, Object> movimiento = new HashMap<>();
+            movimiento.put("id", String.valueOf(solicitud.idProducto));
+            movimiento.put("cantidad", solicitud.cantidad);
+            movimiento.put("clave", solicitud.claveIdempotencia);
+            movimientos.add(movimiento);
+        }
+
+        Map<String, Object>[] resultados;
+        try {
+            resultados = balanceadorInventario.ejecutar(urlInventario -> enviarMovimientos(urlInventario, movimientos));
+        } catch (RuntimeException e) {
+            // Incluye los rechazos de ResilienciaInventario, que no son RestClientException
+            lote.forEach(solicitud -> solicitud.resultado.completeExceptionally(e));
+            return;
+        }
+
+        if (resultados == SIN_LOTE) {
+            lote.forEach(this::enviarIndividual);
+        } else {
+            asignarResultados(lote, resultados);
+        }
+    }
+
+    private Map<String, Object>[] enviarMovimientos(String urlInventario, List<Map<String, Object>> movimientos) {
+        Long sinLoteHasta = replicasSinLote.get(urlInventario);
+        if (sinLoteHasta != null) {
+            if (System.nanoTime() - sinLoteHasta < 0) {
+                return SIN_LOTE;
+            }
+            replicasSinLote.remove(urlInventario, sinLoteHasta);
+        }
+
+        try {
+            return restTemplate.postForObject(urlInventario + "/salidas", Map.of("movimientos", movimientos), Map[].class);
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed e) {
+            // Esta réplica no soporta movimientos en lote; se vuelve a probar pasado un tiempo por si se actualiza
+            replicasSinLote.put(urlInventario, System.nanoTime() + reintentoLoteNanos);
+            return SIN_LOTE;
+        }
+    }
+
+    private void asignarResultados(List<SolicitudDescuento> lote, Map<String, Object>[] resultados) {
+        for (int i = 0; i < lote.size(); i++) {
+            SolicitudDescuento solicitud = lote.get(i);
+            Map<String, Object> resultado = resultados != null && i < resultados.length ? resultados[i] : null;
+
+            if (resultado != null && Boolean.TRUE.equals(resultado.get("exito"))) {
+                solicitud.resultado.complete(null);
+            } else {
+                solicitud.resultado.completeExceptionally(rechazo(solicitud,
+                        resultado != null ? resultado.get("detalle") : null));
+            }
+        }
+    }
+
+    private void enviarIndividual(SolicitudDescuento solicitud) {
+        CompletableFuture.runAsync(() -> {
+            HttpHeaders headers = new HttpHeaders();
+            if (solicitud.claveIdempotencia != null) {
+                headers.set("Idempotency-Key", solicitud.claveIdempotencia);
+            }
+
+            Map<String, Object> producto;
+            try {
+                producto = balanceadorInventario.ejecutar(urlInventario -> restTemplate.postForObject(
+                        urlInventario + "/" + solicitud.idProducto + "/salida",
+                        new HttpEntity<>(Map.of("cantidad", solicitud.cantidad), headers), Map.class));
+            } catch (HttpClientErrorException e) {
+                // 404 producto inexistente, 409 stock insuficiente: se rechaza igual que en el lote
+                throw rechazo(solicitud, e.getStatusCode().value() + " " + e.getResponseBodyAsString());
+            }
+            if (producto == null) {
+                // Las versiones anteriores del inventario responden 200 sin cuerpo si el producto no existe
+                throw rechazo(solicitud, "Producto no encontrado");
+            }
+        }, inventarioExecutor).whenComplete((ignorado, error) -> {
+            if (error != null) {
+                solicitud.resultado.completeExceptionally(error.getCause() != null ? error.getCause() : error);
+            } else {
+                solicitud.resultado.complete(null);
+            }
+        });
+    }
+
+    private static RuntimeException rechazo(SolicitudDescuento solicitud, Object detalle) {
+        return new RuntimeException("No se pudo descontar stock del producto ID: " + solicitud.idProducto
+                + (detalle != null ? ". " + detalle : ""));
+    }
+
+    private static final class SolicitudDescuento {
+        private final Long idProducto;
+        private final Integer cantidad;
+        private final String claveIdempotencia;
+        private final CompletableFuture<Void> resultado = new CompletableFuture<>();
+
+        private SolicitudDescuento(Long idProducto, Integer cantidad, String claveIdempotencia) {
+            this.idProducto = idProducto;
+            this.cantidad = cantidad;
+            this.claveIdempotencia = claveIdempotencia;
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package sales.demo.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import sales.demo.entity.EstadoMovimiento;
+import sales.demo.entity.MovimientoStockOutboxEntity;
+import sales.demo.repositories.MovimientoStockOutboxRepository;
+
+/**
+ * Vacía en segundo plano la tabla outbox de movimientos de stock. Los
+ * movimientos pendientes se envían en lotes al inventario con su clave de
+ * idempotencia; los que fallan se reintentan con espera exponencial hasta
+ * agotar el número máximo de intentos.
+ */
+@Service
+public class MovimientoStockRelay {
+
+    private final MovimientoStockOutboxRepository outboxRepository;
+    private final DescuentoStockBatcher descuentoStockBatcher;
+    private final ProductoCache productoCache;
+    private final int tamanoLote;
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+    private final long timeoutMs;
+
+    private final Counter enviados;
+    private final Counter fallidos;
+    private final AtomicLong retrasoMs = new AtomicLong();
+
+    public MovimientoStockRelay(MovimientoStockOutboxRepository outboxRepository,
+            DescuentoStockBatcher descuentoStockBatcher, ProductoCache productoCache, MeterRegistry meterRegistry,
+            @Value("${ventas.outbox.tamano-lote:200}") int tamanoLote,
+            @Value("${ventas.outbox.max-intentos:10}") int maxIntentos,
+            @Value("${ventas.outbox.espera-base-ms:1000}") long esperaBaseMs,
+            @Value("${ventas.outbox.espera-maxima-ms:300000}") long esperaMaximaMs,
+            @Value("${inventario.salidas.timeout-ms:5000}") long timeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.descuentoStockBatcher = descuentoStockBatcher;
+        this.productoCache = productoCache;
+        this.tamanoLote = tamanoLote;
+        this.maxIntentos = maxIntentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.timeoutMs = timeoutMs;
+
+        this.enviados = Counter.builder("ventas.outbox.enviados")
+            .description("Movimientos de stock confirmados por el inventario")
+            .register(meterRegistry);
+        this.fallidos = Counter.builder("ventas.outbox.fallidos")
+            .description("Movimientos de stock descartados tras agotar los reintentos")
+            .register(meterRegistry);
+        Gauge.builder("ventas.outbox.retraso", retrasoMs, AtomicLong::get)
+            .description("Antigüedad del movimiento de stock pendiente más antiguo")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${ventas.outbox.intervalo-ms:500}")
+    public void drenar() {
+        List<MovimientoStockOutboxEntity> listos;
+        do {
+            listos = outboxRepository.findListosParaEnvio(EstadoMovimiento.PENDIENTE, LocalDateTime.now(),
+                    PageRequest.of(0, tamanoLote));
+            enviar(listos);
+        } while (listos.size() == tamanoLote);
+
+        retrasoMs.set(outboxRepository.findFirstByEstadoOrderByIdAsc(EstadoMovimiento.PENDIENTE)
+            .map(pendiente -> Duration.between(pendiente.getFechaCreacion(), LocalDateTime.now()).toMillis())
+            .orElse(0L));
+    }
+
+    private void enviar(List<MovimientoStockOutboxEntity> movimientos) {
+        if (movimientos.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Void>> envios = movimientos.stream()
+            .map(movimiento -> descuentoStockBatcher.descontarStockAsync(movimiento.getIdProducto(),
+                    movimiento.getCantidad(), movimiento.getClaveIdempotencia())
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS))
+            .toList();
+        CompletableFuture.allOf(envios.toArray(new CompletableFuture[0])).exceptionally(error -> null).join();
+
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < movimientos.size(); i++) {
+            MovimientoStockOutboxEntity movimiento = movimientos.get(i);
+            Throwable error = envios.get(i).handle((resultado, excepcion) -> excepcion).join();
+
+            if (error == null) {
+                movimiento.setEstado(EstadoMovimiento.ENVIADO);
+                movimiento.setFechaEnvio(ahora);
+                movimiento.setUltimoError(null);
+                enviados.increment();
+            } else {
+                registrarFallo(movimiento, error instanceof CompletionException ? error.getCause() : error, ahora);
+            }
+        }
+
+        outboxRepository.saveAll(movimientos);
+        productoCache.invalidar(movimientos.stream().map(MovimientoStockOutboxEntity::getIdProducto).distinct().toList());
+    }
+
+    private void registrarFallo(MovimientoStockOutboxEntity movimiento, Throwable error, LocalDateTime ahora) {
+        int intentos = movimiento.getIntentos() + 1;
+        movimiento.setIntentos(intentos);
+
+        String mensaje = String.valueOf(error.getMessage());
+        movimiento.setUltimoError(mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje);
+
+        if (intentos >= maxIntentos) {
+            movimiento.setEstado(EstadoMovimiento.FALLIDO);
+            fallidos.increment();
+        } else {
+            long espera = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intentos - 1, 20));
+            movimiento.setProximoIntento(ahora.plus(Duration.ofMillis(espera)));
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package sales.demo.services;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import sales.demo.dto.ProductoInventarioDTO;
+
+/**
+ * Cache local de precio y stock de los productos del inventario, indexada por
+ * idProducto. Las entradas caducan tras un TTL, las más antiguas se expulsan al
+ * superar el tamaño máximo y las consultadas cerca de caducar se refrescan en
+ * segundo plano.
+ */
+@Service
+public class ProductoCache {
+
+    private final RestTemplate restTemplate;
+    private final BalanceadorInventario balanceadorInventario;
+    private final ThreadPoolTaskExecutor inventarioExecutor;
+    private final long ttlNanos;
+    private final long refrescoNanos;
+    private final int margenStock;
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter expulsiones;
+    private final Map<Long, Entrada> entradas;
+
+    public ProductoCache(RestTemplate restTemplate, BalanceadorInventario balanceadorInventario,
+            @Qualifier("inventarioExecutor") ThreadPoolTaskExecutor inventarioExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${inventario.cache.max-entradas:10000}") int maxEntradas,
+            @Value("${inventario.cache.ttl-ms:30000}") long ttlMs,
+            @Value("${inventario.cache.refresco-anticipado:0.8}") double refrescoAnticipado,
+            @Value("${inventario.cache.margen-stock:10}") int margenStock) {
+        this.restTemplate = restTemplate;
+        this.balanceadorInventario = balanceadorInventario;
+        this.inventarioExecutor = inventarioExecutor;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.refrescoNanos = (long) (ttlNanos * refrescoAnticipado);
+        this.margenStock = margenStock;
+
+        this.aciertos = Counter.builder("cache.gets").tag("cache", "productos").tag("result", "hit")
+            .register(meterRegistry);
+        this.fallos = Counter.builder("cache.gets").tag("cache", "productos").tag("result", "miss")
+            .register(meterRegistry);
+        this.expulsiones = Counter.builder("cache.evictions").tag("cache", "productos").register(meterRegistry);
+
+        this.entradas = Collections.synchronizedMap(new LinkedHashMap<Long, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> masAntigua) {
+                boolean expulsar = size() > maxEntradas;
+                if (expulsar) {
+                    expulsiones.increment();
+                }
+                return expulsar;
+            }
+        });
+        Gauge.builder("cache.size", entradas, Map::size).tag("cache", "productos").register(meterRegistry);
+    }
+
+    public ProductoInventarioDTO obtener(Long idProducto) {
+        Entrada entrada = buscarVigente(idProducto);
+        if (entrada != null) {
+            aciertos.increment();
+            programarRefresco(idProducto, entrada);
+            return entrada.producto;
+        }
+
+        fallos.increment();
+        return cargar(idProducto);
+    }
+
+    /**
+     * Devuelve el producto desde la cache solo si el stock guardado supera la
+     * cantidad solicitada con margen suficiente; en otro caso lo consulta al
+     * inventario para validar el stock con el valor real.
+     */
+    public ProductoInventarioDTO obtenerParaCantidad(Long idProducto, int cantidad) {
+        Entrada entrada = buscarVigente(idProducto);
+        if (entrada != null && entrada.producto.getStock() - cantidad >= margenStock) {
+            aciertos.increment();
+            programarRefresco(idProducto, entrada);
+            return entrada.producto;
+        }
+
+        fallos.increment();
+        return cargar(idProducto);
+    }
+
+    public void invalidar(Long idProducto) {
+        entradas.remove(idProducto);
+    }
+
+    public void invalidar(Collection<Long> idsProducto) {
+        idsProducto.forEach(this::invalidar);
+    }
+
+    private Entrada buscarVigente(Long idProducto) {
+        Entrada entrada = entradas.get(idProducto);
+        if (entrada == null || System.nanoTime() - entrada.cargadaEn >= ttlNanos) {
+            return null;
+        }
+        return entrada;
+    }
+
+    private void programarRefresco(Long idProducto, Entrada entrada) {
+        if (System.nanoTime() - entrada.cargadaEn >= refrescoNanos && entrada.refrescando.compareAndSet(false, true)) {
+            inventarioExecutor.execute(() -> {
+                try {
+                    cargar(idProducto);
+                } catch (RuntimeException e) {
+                    // La entrada actual seguirá sirviéndose hasta que caduque; la próxima lectura lo reintenta
+                    entrada.refrescando.set(false);
+                }
+            });
+        }
+    }
+
+    private ProductoInventarioDTO cargar(Long idProducto) {
+        Map<String, Object> producto = balanceadorInventario.ejecutar(
+                urlInventario -> restTemplate.getForObject(urlInventario + "/" + idProducto, Map.class));
+        if (producto == null) {
+            throw new RuntimeException("Producto no encontrado en inventario con ID: " + idProducto);
+        }
+
+        ProductoInventarioDTO snapshot = new ProductoInventarioDTO(idProducto,
+                new BigDecimal(producto.get("precio").toString()), ((Number) producto.get("stock")).intValue());
+        entradas.put(idProducto, new Entrada(snapshot, System.nanoTime()));
+        return snapshot;
+    }
+
+    private static final class Entrada {
+        private final ProductoInventarioDTO producto;
+        private final long cargadaEn;
+        private final AtomicBoolean refrescando = new AtomicBoolean();
+
+        private Entrada(ProductoInventarioDTO producto, long cargadaEn) {
+            this.producto = producto;
+            this.cargadaEn = cargadaEn;
+        }
+    }
+
+}
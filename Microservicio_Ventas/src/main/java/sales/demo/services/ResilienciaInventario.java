@@ -0,0 +1,290 @@
+package sales.demo.services;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import sales.demo.exceptions.InventarioNoDisponibleException;
+
+/**
+ * Protege las llamadas al microservicio de inventario:
+ * <ul>
+ * <li>un circuito que se abre cuando falla una proporción de las últimas
+ * llamadas y, pasado un tiempo, deja pasar unas pocas de prueba antes de
+ * cerrarse de nuevo;</li>
+ * <li>un límite de llamadas concurrentes, para que un inventario lento no
+ * retenga todos los hilos;</li>
+ * <li>un timeout por llamada calculado a partir del plazo de la petición que
+ * la origina, fijado con {@link #conPlazo(long, Supplier)}.</li>
+ * </ul>
+ * Las llamadas rechazadas fallan de inmediato con
+ * {@link InventarioNoDisponibleException}. Solo cuentan como fallos los errores
+ * que indican que el inventario no está disponible (ver
+ * {@link #esFalloDeDisponibilidad(RuntimeException)}); los rechazos de negocio,
+ * como un stock insuficiente, no abren el circuito.
+ */
+@Component
+public class ResilienciaInventario {
+
+    private enum EstadoCircuito {
+        CERRADO, ABIERTO, SEMIABIERTO
+    }
+
+    // Plazo (System.nanoTime) de la petición en curso en este hilo
+    private static final ThreadLocal<Long> PLAZO = new ThreadLocal<>();
+    // Timeout de la llamada HTTP en curso en este hilo; lo lee HttpClientConfig
+    private static final ThreadLocal<Duration> TIMEOUT_LLAMADA = new ThreadLocal<>();
+
+    private final long timeoutLlamadaNanos;
+    private final int minimoLlamadas;
+    private final double umbralFallos;
+    private final long esperaAbiertoNanos;
+    private final int llamadasPrueba;
+    private final long esperaBulkheadNanos;
+    private final Semaphore bulkhead;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rechazosCircuito;
+    private final Counter rechazosBulkhead;
+    private final Counter rechazosPlazo;
+
+    // Resultados de las últimas llamadas en un buffer circular; protegidos por this
+    private final boolean[] ventana;
+    private int posicion;
+    private int registradas;
+    private int fallidas;
+    private EstadoCircuito estado = EstadoCircuito.CERRADO;
+    private long abiertoHasta;
+    private int pruebasEnCurso;
+    private int pruebasExitosas;
+
+    public ResilienciaInventario(MeterRegistry meterRegistry,
+            @Value("${inventario.http.read-timeout-ms:3000}") long timeoutLlamadaMs,
+            @Value("${inventario.circuito.ventana:20}") int ventana,
+            @Value("${inventario.circuito.minimo-llamadas:10}") int minimoLlamadas,
+            @Value("${inventario.circuito.umbral-fallos:0.5}") double umbralFallos,
+            @Value("${inventario.circuito.espera-abierto-ms:5000}") long esperaAbiertoMs,
+            @Value("${inventario.circuito.llamadas-prueba:3}") int llamadasPrueba,
+            @Value("${inventario.bulkhead.max-concurrentes:32}") int maxConcurrentes,
+            @Value("${inventario.bulkhead.espera-ms:50}") long esperaBulkheadMs) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutLlamadaNanos = TimeUnit.MILLISECONDS.toNanos(timeoutLlamadaMs);
+        this.ventana = new boolean[ventana];
+        this.minimoLlamadas = Math.min(minimoLlamadas, ventana);
+        this.umbralFallos = umbralFallos;
+        this.esperaAbiertoNanos = TimeUnit.MILLISECONDS.toNanos(esperaAbiertoMs);
+        this.llamadasPrueba = llamadasPrueba;
+        this.esperaBulkheadNanos = TimeUnit.MILLISECONDS.toNanos(esperaBulkheadMs);
+        this.bulkhead = new Semaphore(maxConcurrentes);
+
+        this.rechazosCircuito = contadorRechazos("circuito_abierto");
+        this.rechazosBulkhead = contadorRechazos("bulkhead_lleno");
+        this.rechazosPlazo = contadorRechazos("plazo_agotado");
+
+        for (EstadoCircuito posible : EstadoCircuito.values()) {
+            Gauge.builder("inventario.circuito.estado", this, resiliencia -> resiliencia.estadoActual() == posible ? 1 : 0)
+                .description("1 para el estado actual del circuito hacia el inventario")
+                .tag("estado", posible.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Gauge.builder("inventario.bulkhead.disponibles", bulkhead, Semaphore::availablePermits)
+            .description("Llamadas concurrentes al inventario que aún pueden iniciarse")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la tarea con un plazo absoluto (System.nanoTime) que limita todas
+     * las llamadas al inventario que haga en este hilo.
+     */
+    public <T> T conPlazo(long limiteNanos, Supplier<T> tarea) {
+        Long anterior = PLAZO.get();
+        PLAZO.set(limiteNanos);
+        try {
+            return tarea.get();
+        } finally {
+            if (anterior != null) {
+                PLAZO.set(anterior);
+            } else {
+                PLAZO.remove();
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una llamada al inventario si el circuito y el bulkhead lo permiten,
+     * con un timeout que no excede el plazo de la petición. Los errores de red y
+     * las respuestas 5xx cuentan como fallos del inventario; las respuestas 4xx
+     * son respuestas válidas y se propagan sin afectar al circuito.
+     */
+    public <T> T ejecutar(Supplier<T> llamada) {
+        long ahora = System.nanoTime();
+        long timeoutNanos = timeoutLlamadaNanos;
+        Long plazo = PLAZO.get();
+        if (plazo != null) {
+            timeoutNanos = Math.min(timeoutNanos, plazo - ahora);
+            if (timeoutNanos <= 0) {
+                rechazosPlazo.increment();
+                throw new InventarioNoDisponibleException("Plazo agotado antes de consultar el inventario");
+            }
+        }
+
+        if (!permitirLlamada(ahora)) {
+            rechazosCircuito.increment();
+            throw new InventarioNoDisponibleException("Inventario no disponible temporalmente; circuito abierto");
+        }
+
+        boolean adquirido;
+        try {
+            adquirido = bulkhead.tryAcquire(Math.min(esperaBulkheadNanos, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            adquirido = false;
+        }
+        if (!adquirido) {
+            liberarPrueba();
+            rechazosBulkhead.increment();
+            throw new InventarioNoDisponibleException("Demasiadas llamadas concurrentes al inventario");
+        }
+
+        // El tiempo esperado en el bulkhead se descuenta del timeout de la llamada
+        long restante = timeoutNanos - (System.nanoTime() - ahora);
+        TIMEOUT_LLAMADA.set(Duration.ofNanos(Math.max(restante, TimeUnit.MILLISECONDS.toNanos(1))));
+        try {
+            T resultado = llamada.get();
+            registrarResultado(true);
+            return resultado;
+        } catch (RuntimeException e) {
+            registrarResultado(!esFalloDeDisponibilidad(e));
+            throw e;
+        } finally {
+            TIMEOUT_LLAMADA.remove();
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Indica si el error muestra que el inventario no está disponible: no se pudo
+     * conectar o la respuesta no llegó a tiempo, o respondió 502, 503 o 504. Un 500
+     * no cuenta, porque las versiones del inventario que aún no responden 409 lo
+     * usan para rechazar un descuento por stock insuficiente.
+     */
+    public static boolean esFalloDeDisponibilidad(RuntimeException error) {
+        if (error instanceof ResourceAccessException) {
+            return true;
+        }
+        if (error instanceof HttpServerErrorException respuesta) {
+            int estado = respuesta.getStatusCode().value();
+            return estado == 502 || estado == 503 || estado == 504;
+        }
+        return false;
+    }
+
+    /**
+     * Timeout de la llamada al inventario en curso en este hilo, o null si la
+     * llamada no pasa por {@link #ejecutar(Supplier)}.
+     */
+    public static Duration timeoutLlamadaActual() {
+        return TIMEOUT_LLAMADA.get();
+    }
+
+    private synchronized boolean permitirLlamada(long ahora) {
+        if (estado == EstadoCircuito.ABIERTO) {
+            if (ahora - abiertoHasta < 0) {
+                return false;
+            }
+            cambiarEstado(EstadoCircuito.SEMIABIERTO);
+            pruebasEnCurso = 0;
+            pruebasExitosas = 0;
+        }
+        if (estado == EstadoCircuito.SEMIABIERTO) {
+            if (pruebasEnCurso >= llamadasPrueba) {
+                return false;
+            }
+            pruebasEnCurso++;
+        }
+        return true;
+    }
+
+    // Devuelve el permiso de prueba de una llamada que no llegó a hacerse
+    private synchronized void liberarPrueba() {
+        if (estado == EstadoCircuito.SEMIABIERTO && pruebasEnCurso > 0) {
+            pruebasEnCurso--;
+        }
+    }
+
+    private synchronized void registrarResultado(boolean exito) {
+        switch (estado) {
+            case SEMIABIERTO -> {
+                if (!exito) {
+                    abrir();
+                } else if (++pruebasExitosas >= llamadasPrueba) {
+                    reiniciarVentana();
+                    cambiarEstado(EstadoCircuito.CERRADO);
+                }
+            }
+            case CERRADO -> {
+                if (registradas == ventana.length && !ventana[posicion]) {
+                    fallidas--;
+                }
+                ventana[posicion] = exito;
+                posicion = (posicion + 1) % ventana.length;
+                registradas = Math.min(registradas + 1, ventana.length);
+                if (!exito) {
+                    fallidas++;
+                }
+
+                if (registradas >= minimoLlamadas && (double) fallidas / registradas >= umbralFallos) {
+                    abrir();
+                }
+            }
+            case ABIERTO -> {
+                // Llamadas iniciadas antes de abrir el circuito; no cambian su estado
+            }
+        }
+    }
+
+    private void abrir() {
+        abiertoHasta = System.nanoTime() + esperaAbiertoNanos;
+        reiniciarVentana();
+        cambiarEstado(EstadoCircuito.ABIERTO);
+    }
+
+    private void reiniciarVentana() {
+        posicion = 0;
+        registradas = 0;
+        fallidas = 0;
+    }
+
+    private void cambiarEstado(EstadoCircuito nuevo) {
+        if (nuevo != estado) {
+            Counter.builder("inventario.circuito.transiciones")
+                .description("Cambios de estado del circuito hacia el inventario")
+                .tag("desde", estado.name().toLowerCase())
+                .tag("hacia", nuevo.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+            estado = nuevo;
+        }
+    }
+
+    private synchronized EstadoCircuito estadoActual() {
+        return estado;
+    }
+
+    private Counter contadorRechazos(String motivo) {
+        return Counter.builder("inventario.llamadas.rechazadas")
+            .description("Llamadas al inventario rechazadas sin intentarse")
+            .tag("motivo", motivo)
+            .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,136 @@
+package sales.demo.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sales.demo.dto.ResumenDiarioVentasDTO;
+import sales.demo.dto.ResumenProductoVentasDTO;
+import sales.demo.dto.ResumenVendedorVentasDTO;
+import sales.demo.entity.DetalleVentaEntity;
+import sales.demo.entity.VentaEntity;
+import sales.demo.repositories.ResumenVentaProductoRepository;
+import sales.demo.repositories.ResumenVentaVendedorRepository;
+
+/**
+ * Mantiene los acumulados diarios de ventas por vendedor y por vendedor y
+ * producto. {@link VentaService} suma o resta cada venta dentro de la misma
+ * transacción en que la registra, actualiza o elimina, de modo que las
+ * consultas agregadas leen un número de filas que depende de los días,
+ * vendedores y productos del rango y no del número de ventas.
+ */
+@Service
+@Transactional
+public class ResumenVentasService {
+
+    // Las ventas sin vendedor se acumulan bajo este ID
+    private static final Long SIN_VENDEDOR = 0L;
+
+    private final ResumenVentaProductoRepository resumenProductoRepository;
+    private final ResumenVentaVendedorRepository resumenVendedorRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ResumenVentasService(ResumenVentaProductoRepository resumenProductoRepository,
+            ResumenVentaVendedorRepository resumenVendedorRepository, PlatformTransactionManager transactionManager) {
+        this.resumenProductoRepository = resumenProductoRepository;
+        this.resumenVendedorRepository = resumenVendedorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sumarVenta(VentaEntity venta) {
+        acumular(venta, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restarVenta(VentaEntity venta) {
+        acumular(venta, -1);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumenDiarioVentasDTO> obtenerResumenDiario(LocalDate fechaInicio, LocalDate fechaFin, Long idVendedor) {
+        validarRango(fechaInicio, fechaFin);
+        return resumenVendedorRepository.sumarPorFecha(fechaInicio, fechaFin, idVendedor);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumenVendedorVentasDTO> obtenerResumenPorVendedor(LocalDate fechaInicio, LocalDate fechaFin) {
+        validarRango(fechaInicio, fechaFin);
+        return resumenVendedorRepository.sumarPorVendedor(fechaInicio, fechaFin);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumenProductoVentasDTO> obtenerResumenPorProducto(LocalDate fechaInicio, LocalDate fechaFin, Long idVendedor) {
+        validarRango(fechaInicio, fechaFin);
+        return resumenProductoRepository.sumarPorProducto(fechaInicio, fechaFin, idVendedor);
+    }
+
+    /**
+     * Recalcula los acumulados del rango a partir de las ventas guardadas, un día
+     * por transacción para no bloquear el rango completo durante una carga
+     * inicial. Pensado para días cerrados: una venta registrada en un día que se
+     * está recalculando puede quedar fuera hasta la siguiente reconstrucción.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconstruir(LocalDate fechaInicio, LocalDate fechaFin) {
+        validarRango(fechaInicio, fechaFin);
+
+        for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
+            LocalDate dia = fecha;
+            transactionTemplate.executeWithoutResult(estado -> {
+                resumenProductoRepository.deleteByFecha(dia);
+                resumenProductoRepository.reconstruirFecha(dia);
+                resumenVendedorRepository.deleteByFecha(dia);
+                resumenVendedorRepository.reconstruirFecha(dia);
+            });
+        }
+    }
+
+    // Corrige cada noche cualquier desviación del día anterior respecto a las ventas guardadas
+    @Scheduled(cron = "${ventas.resumen.reconstruccion-cron:0 30 3 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconstruirDiaAnterior() {
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        reconstruir(ayer, ayer);
+    }
+
+    private void acumular(VentaEntity venta, int signo) {
+        Long idVendedor = venta.getIdVendedor() != null ? venta.getIdVendedor() : SIN_VENDEDOR;
+        BigDecimal total = venta.getTotal() != null ? venta.getTotal() : BigDecimal.ZERO;
+
+        // Un producto repetido en la venta cuenta una sola vez; el orden fijo evita interbloqueos entre ventas
+        Map<Long, Acumulado> porProducto = new TreeMap<>();
+        for (DetalleVentaEntity detalle : venta.getDetalles()) {
+            Acumulado acumulado = porProducto.computeIfAbsent(detalle.getIdProducto(), id -> new Acumulado());
+            acumulado.cantidad += detalle.getCantidad();
+            acumulado.ingresos = acumulado.ingresos.add(detalle.getSubtotal());
+        }
+
+        porProducto.forEach((idProducto, acumulado) -> resumenProductoRepository.acumular(venta.getFechaVenta(),
+            idVendedor, idProducto, signo, signo * acumulado.cantidad,
+            signo > 0 ? acumulado.ingresos : acumulado.ingresos.negate()));
+        resumenVendedorRepository.acumular(venta.getFechaVenta(), idVendedor, signo,
+            signo > 0 ? total : total.negate());
+    }
+
+    private void validarRango(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin.");
+        }
+    }
+
+    private static final class Acumulado {
+        private long cantidad;
+        private BigDecimal ingresos = BigDecimal.ZERO;
+    }
+
+}
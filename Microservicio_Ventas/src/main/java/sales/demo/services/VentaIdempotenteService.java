@@ -0,0 +1,169 @@
+package sales.demo.services;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import sales.demo.dto.VentaDTO;
+import sales.demo.repositories.ClaveIdempotenciaVentaRepository;
+
+/**
+ * Registra ventas identificadas por la cabecera Idempotency-Key. Las
+ * repeticiones de una clave ya registrada devuelven la misma venta sin volver a
+ * consultar el inventario ni guardar nada: primero se busca en memoria y, si la
+ * entrada caducó o la venta se registró en otra instancia, en la tabla de
+ * claves. Las repeticiones que llegan mientras la primera petición sigue en
+ * curso esperan su resultado en lugar de registrar otra venta en paralelo.
+ */
+@Service
+public class VentaIdempotenteService {
+
+    private static final int LONGITUD_MAXIMA_CLAVE = 255;
+
+    private final VentaService ventaService;
+    private final ClaveIdempotenciaVentaRepository claveIdempotenciaRepository;
+    private final long ttlNanos;
+    private final int maxEntradas;
+    private final long retencionHoras;
+
+    private final Counter repeticiones;
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    public VentaIdempotenteService(VentaService ventaService,
+            ClaveIdempotenciaVentaRepository claveIdempotenciaRepository, MeterRegistry meterRegistry,
+            @Value("${ventas.idempotencia.ttl-ms:600000}") long ttlMs,
+            @Value("${ventas.idempotencia.max-entradas:10000}") int maxEntradas,
+            @Value("${ventas.idempotencia.retencion-horas:24}") long retencionHoras) {
+        this.ventaService = ventaService;
+        this.claveIdempotenciaRepository = claveIdempotenciaRepository;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxEntradas = maxEntradas;
+        this.retencionHoras = retencionHoras;
+
+        this.repeticiones = Counter.builder("ventas.idempotencia.repeticiones")
+            .description("Peticiones de venta resueltas con el resultado de una petición anterior con la misma clave")
+            .register(meterRegistry);
+        Gauge.builder("ventas.idempotencia.entradas", entradas, ConcurrentHashMap::size)
+            .description("Claves de idempotencia guardadas en memoria")
+            .register(meterRegistry);
+    }
+
+    public VentaDTO crearVenta(String claveIdempotencia, VentaDTO ventaDTO) {
+        validarClave(claveIdempotencia);
+
+        while (true) {
+            Entrada nueva = new Entrada();
+            Entrada existente = entradas.putIfAbsent(claveIdempotencia, nueva);
+            if (existente == null) {
+                return ejecutar(claveIdempotencia, ventaDTO, nueva);
+            }
+            if (existente.caducada()) {
+                entradas.remove(claveIdempotencia, existente);
+                continue;
+            }
+
+            repeticiones.increment();
+            return esperar(existente);
+        }
+    }
+
+    /**
+     * Elimina la venta junto con su clave de idempotencia y olvida las entradas en
+     * memoria que la devolverían, para que una repetición posterior con la misma
+     * clave no responda con una venta que ya no existe.
+     */
+    public void eliminarVenta(Long idVenta) {
+        ventaService.eliminarVenta(idVenta);
+        entradas.values().removeIf(entrada -> entrada.registro(idVenta));
+    }
+
+    // Elimina de memoria las entradas caducadas; la tabla sigue respondiendo por ellas
+    @Scheduled(fixedDelayString = "${ventas.idempotencia.purga-intervalo-ms:60000}")
+    public void purgarEntradas() {
+        entradas.values().removeIf(Entrada::caducada);
+    }
+
+    @Scheduled(fixedDelayString = "${ventas.idempotencia.purga-claves-intervalo-ms:3600000}")
+    @Transactional
+    public void purgarClaves() {
+        claveIdempotenciaRepository.deleteByFechaCreacionBefore(LocalDateTime.now().minusHours(retencionHoras));
+    }
+
+    private VentaDTO ejecutar(String claveIdempotencia, VentaDTO ventaDTO, Entrada entrada) {
+        try {
+            VentaDTO venta = ventaService.buscarVentaPorClaveIdempotencia(claveIdempotencia)
+                .orElseGet(() -> registrar(claveIdempotencia, ventaDTO));
+
+            entrada.completar(venta, System.nanoTime() + ttlNanos);
+            if (entradas.size() > maxEntradas) {
+                // Sin espacio en memoria las repeticiones se resuelven desde la tabla
+                entradas.remove(claveIdempotencia, entrada);
+            }
+            return venta;
+        } catch (RuntimeException e) {
+            // Las peticiones en espera reciben el mismo error y la siguiente repetición vuelve a intentarlo
+            entradas.remove(claveIdempotencia, entrada);
+            entrada.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private VentaDTO registrar(String claveIdempotencia, VentaDTO ventaDTO) {
+        try {
+            return ventaService.crearVenta(ventaDTO, claveIdempotencia);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia registró una venta con la misma clave mientras se verificaba el stock
+            return ventaService.buscarVentaPorClaveIdempotencia(claveIdempotencia).orElseThrow(() -> e);
+        }
+    }
+
+    private VentaDTO esperar(Entrada entrada) {
+        try {
+            return entrada.resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private void validarClave(String claveIdempotencia) {
+        if (claveIdempotencia.isBlank() || claveIdempotencia.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new IllegalArgumentException("La clave de idempotencia debe tener entre 1 y "
+                + LONGITUD_MAXIMA_CLAVE + " caracteres.");
+        }
+    }
+
+    private static final class Entrada {
+        private final CompletableFuture<VentaDTO> resultado = new CompletableFuture<>();
+        private volatile long expiraEn;
+
+        private void completar(VentaDTO venta, long expiraEn) {
+            this.expiraEn = expiraEn;
+            resultado.complete(venta);
+        }
+
+        private boolean registro(Long idVenta) {
+            return resultado.isDone() && !resultado.isCompletedExceptionally()
+                && idVenta.equals(resultado.getNow(null).getId());
+        }
+
+        // Las entradas en curso no caducan
+        private boolean caducada() {
+            return resultado.isDone() && !resultado.isCompletedExceptionally() && System.nanoTime() - expiraEn >= 0;
+        }
+    }
+
+}
@@ -1,91 +1,217 @@
 package sales.demo.services;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.Tuple;
 import sales.demo.dto.DetalleVentaDTO;
 import sales.demo.dto.HistorialVentaDTO;
+import sales.demo.dto.LineaVentaDTO;
+import sales.demo.dto.PaginaVentasDTO;
+import sales.demo.dto.ProductoInventarioDTO;
+import sales.demo.dto.ResultadoVentaLoteDTO;
 import sales.demo.dto.VentaDTO;
 import sales.demo.entity.DetalleVentaEntity;
 import sales.demo.entity.HistorialVentaEntity;
+import sales.demo.entity.MovimientoStockOutboxEntity;
 import sales.demo.entity.VentaEntity;
+import sales.demo.exceptions.PaginacionInvalidaException;
+import sales.demo.exceptions.VentaConflictoException;
 import sales.demo.mapper.VentaMapper;
+import sales.demo.repositories.ClaveIdempotenciaVentaRepository;
 import sales.demo.repositories.DetalleVentaRepository;
 import sales.demo.repositories.HistorialVentaRepository;
+import sales.demo.repositories.MovimientoStockOutboxRepository;
 import sales.demo.repositories.VentaRepository;
 
 @Service
 @Transactional
 public class VentaService {
 
+    public static final int LIMITE_MAXIMO_PAGINA = 500;
+
+    private static final String CABECERA_CSV = "id_venta,fecha_venta,id_vendedor,id_cliente,total_venta,"
+        + "id_detalle,id_producto,cantidad,precio_unitario,subtotal\n";
+
     private final VentaRepository ventaRepository;
     private final DetalleVentaRepository detalleVentaRepository;
     private final HistorialVentaRepository historialVentaRepository;
     private final VentaMapper ventaMapper;
-    private final RestTemplate restTemplate;
-
-    // URL del microservicio de inventario
-    private static final String INVENTARIO_SERVICE_URL = "http://localhost:8016/farmasync/inventario";
+    private final ThreadPoolTaskExecutor inventarioExecutor;
+    private final MovimientoStockOutboxRepository movimientoStockOutboxRepository;
+    private final ProductoCache productoCache;
+    private final ResilienciaInventario resilienciaInventario;
+    private final ResumenVentasService resumenVentasService;
+    private final ClaveIdempotenciaVentaRepository claveIdempotenciaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Timer retencionConexion;
+    private final long timeoutVerificacionMs;
+    private final int tamanoBloqueLectura;
+    private final int tamanoTransaccionLote;
 
     public VentaService(VentaRepository ventaRepository, DetalleVentaRepository detalleVentaRepository,
-            HistorialVentaRepository historialVentaRepository, VentaMapper ventaMapper, RestTemplate restTemplate) {
+            HistorialVentaRepository historialVentaRepository, VentaMapper ventaMapper,
+            @Qualifier("inventarioExecutor") ThreadPoolTaskExecutor inventarioExecutor,
+            MovimientoStockOutboxRepository movimientoStockOutboxRepository, ProductoCache productoCache,
+            ResilienciaInventario resilienciaInventario, ResumenVentasService resumenVentasService, ClaveIdempotenciaVentaRepository claveIdempotenciaRepository,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry, @Value("${inventario.verificacion.timeout-ms:3000}") long timeoutVerificacionMs,
+            @Value("${ventas.lectura.tamano-bloque:500}") int tamanoBloqueLectura,
+            @Value("${ventas.lote.tamano-transaccion:50}") int tamanoTransaccionLote) {
         this.ventaRepository = ventaRepository;
         this.detalleVentaRepository = detalleVentaRepository;
         this.historialVentaRepository = historialVentaRepository;
         this.ventaMapper = ventaMapper;
-        this.restTemplate = restTemplate;
+        this.inventarioExecutor = inventarioExecutor;
+        this.movimientoStockOutboxRepository = movimientoStockOutboxRepository;
+        this.productoCache = productoCache;
+        this.resilienciaInventario = resilienciaInventario;
+        this.resumenVentasService = resumenVentasService;
+        this.claveIdempotenciaRepository = claveIdempotenciaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.retencionConexion = Timer.builder("ventas.conexion.retencion")
+            .description("Tiempo que cada transacción de ventas, individual o de un bloque del lote, retiene una conexión de base de datos")
+            .register(meterRegistry);
+        this.timeoutVerificacionMs = timeoutVerificacionMs;
+        this.tamanoBloqueLectura = tamanoBloqueLectura;
+        this.tamanoTransaccionLote = tamanoTransaccionLote;
     }
 
+    /**
+     * Registra la venta sin esperar al inventario para descontar stock: se verifica
+     * el stock, y la venta se guarda junto con sus movimientos de stock en la tabla
+     * outbox dentro de una transacción corta. {@link MovimientoStockRelay} aplica
+     * después esos movimientos en el inventario.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public VentaDTO crearVenta(VentaDTO ventaDTO) {
+        return crearVenta(ventaDTO, null);
+    }
+
+    /**
+     * Igual que {@link #crearVenta(VentaDTO)}, guardando además la clave de
+     * idempotencia en la transacción de la venta. Si otra petición ya registró
+     * una venta con la misma clave la transacción falla por clave duplicada y no
+     * se guarda nada.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public VentaDTO crearVenta(VentaDTO ventaDTO, String claveIdempotencia) {
         validarVenta(ventaDTO);
 
-        // Verificar stock y obtener precios para cada producto
-        for (DetalleVentaDTO detalle : ventaDTO.getDetallesVenta()) {
-            String urlProducto = INVENTARIO_SERVICE_URL + "/" + detalle.getIdProducto();
-            Map<String, Object> producto = restTemplate.getForObject(urlProducto, Map.class);
-            if (producto == null) {
-                throw new RuntimeException("Producto no encontrado en inventario con ID: " + detalle.getIdProducto());
-            }
+        // Verificar stock y obtener precios de todos los productos en paralelo
+        verificarStockYPrecios(ventaDTO.getDetallesVenta());
 
-            int stockDisponible = (Integer) producto.get("stock");
-            if (stockDisponible < detalle.getCantidad()) {
-                throw new RuntimeException("Stock insuficiente para el producto ID: " + detalle.getIdProducto() + ". Disponible: " + stockDisponible + ", Solicitado: " + detalle.getCantidad());
-            }
-
-            // Obtener precio del producto y setearlo en el detalle
-            BigDecimal precioUnitario = new BigDecimal(producto.get("precio").toString());
-            detalle.setPrecioUnitario(precioUnitario);
-            detalle.setSubtotal(precioUnitario.multiply(BigDecimal.valueOf(detalle.getCantidad())));
-        }
+        return confirmarVenta(ventaDTO, claveIdempotencia);
+    }
 
-        VentaEntity ventaEntity = ventaMapper.toEntity(ventaDTO);
+    /**
+     * Variante no bloqueante de {@link #crearVenta(VentaDTO)}: el hilo que recibe la
+     * petición queda libre mientras se consulta el inventario.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<VentaDTO> crearVentaAsync(VentaDTO ventaDTO) {
+        validarVenta(ventaDTO);
 
-        ventaEntity.setFechaVenta(LocalDate.now());
+        return verificarStockYPreciosAsync(ventaDTO.getDetallesVenta())
+            .thenApplyAsync(verificada -> confirmarVenta(ventaDTO, null), inventarioExecutor);
+    }
 
-        if (ventaEntity.getTotal() == null || ventaEntity.getTotal().compareTo(BigDecimal.ZERO) == 0) {
-            ventaEntity.setTotal(calcularTotalVenta(ventaDTO));
+    /**
+     * Registra un lote de ventas acumuladas por un terminal sin conexión. Los
+     * productos de todo el lote se consultan una sola vez, el stock se descuenta
+     * venta a venta sobre esa consulta y las ventas aceptadas se guardan en
+     * transacciones de {@code ventas.lote.tamano-transaccion} ventas. El resultado
+     * indica, en el orden recibido, si cada venta se registró o por qué no.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ResultadoVentaLoteDTO> crearVentasLote(List<VentaDTO> ventas) {
+        ResultadoVentaLoteDTO[] resultados = new ResultadoVentaLoteDTO[ventas.size()];
+
+        List<Integer> validas = new ArrayList<>();
+        for (int i = 0; i < ventas.size(); i++) {
+            try {
+                validarVenta(ventas.get(i));
+                validas.add(i);
+            } catch (IllegalArgumentException e) {
+                resultados[i] = ResultadoVentaLoteDTO.rechazada(i, e.getMessage());
+            }
         }
 
-        ventaEntity.getDetalles().forEach(detalle -> detalle.setVenta(ventaEntity));
-
-        VentaEntity ventaGuardada = ventaRepository.save(ventaEntity);
+        // Cantidad total pedida de cada producto en el lote, para consultar cada uno una sola vez
+        Map<Long, Integer> cantidadesPorProducto = new HashMap<>();
+        for (int i : validas) {
+            ventas.get(i).getDetallesVenta().forEach(detalle ->
+                cantidadesPorProducto.merge(detalle.getIdProducto(), detalle.getCantidad(), Integer::sum));
+        }
+        Map<Long, CompletableFuture<ProductoInventarioDTO>> productos = consultarProductos(cantidadesPorProducto);
+
+        Map<Long, Integer> stockRestante = new HashMap<>();
+        List<Integer> aceptadas = new ArrayList<>();
+        for (int i : validas) {
+            String error = asignarStockYPrecios(ventas.get(i), productos, stockRestante);
+            if (error == null) {
+                aceptadas.add(i);
+            } else {
+                resultados[i] = ResultadoVentaLoteDTO.rechazada(i, error);
+            }
+        }
 
-        // Descontar stock en inventario para cada producto
-        for (DetalleVentaDTO detalle : ventaDTO.getDetallesVenta()) {
-            String urlSalida = INVENTARIO_SERVICE_URL + "/" + detalle.getIdProducto() + "/salida";
-            Map<String, Integer> movimiento = Map.of("cantidad", detalle.getCantidad());
-            restTemplate.postForObject(urlSalida, movimiento, Void.class);
+        for (int desde = 0; desde < aceptadas.size(); desde += tamanoTransaccionLote) {
+            guardarBloque(ventas, aceptadas.subList(desde, Math.min(desde + tamanoTransaccionLote, aceptadas.size())),
+                resultados);
         }
 
-        crearHistorialVenta(ventaEntity, "Registro", ventaEntity.getIdVendedor(), "Nueva venta registrada");
-        return ventaMapper.toDTO(ventaGuardada);
+        return Arrays.asList(resultados);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<VentaDTO> buscarVentaPorClaveIdempotencia(String claveIdempotencia) {
+        return claveIdempotenciaRepository.findById(claveIdempotencia)
+            .flatMap(clave -> ventaRepository.findById(clave.getIdVenta()))
+            .map(ventaMapper::toDTO);
     }
 
     @Transactional(readOnly = true)
@@ -95,30 +221,144 @@ public class VentaService {
         return ventaMapper.toDTO(venta);
     }
 
+    /**
+     * Devuelve las ventas posteriores al cursor ordenadas por ID. Se busca por
+     * {@code id_venta > cursor} en lugar de usar un offset, de modo que el coste de
+     * cada página no crece con el número de ventas ya recorridas.
+     */
     @Transactional(readOnly = true)
-    public List<VentaDTO> obtenerTodasLasVentas() {
-        List<VentaEntity> ventas = ventaRepository.findAll();
-        return ventaMapper.toDTOList(ventas);
+    public PaginaVentasDTO obtenerPaginaVentas(String cursor, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new PaginacionInvalidaException("El límite debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA + ": " + limite);
+        }
+
+        // Se pide una venta de más para saber si existe una página siguiente
+        List<VentaDTO> ventas = ventaRepository.findResumenesSiguientes(decodificarCursor(cursor), PageRequest.of(0, limite + 1));
+
+        String siguienteCursor = null;
+        if (ventas.size() > limite) {
+            ventas = ventas.subList(0, limite);
+            siguienteCursor = codificarCursor(ventas.get(limite - 1).getId());
+        }
+
+        return new PaginaVentasDTO(agregarDetalles(ventas), siguienteCursor);
     }
 
+    /**
+     * Escribe todas las ventas como NDJSON (una venta por línea). Las ventas se
+     * leen por bloques de IDs consecutivos con la misma búsqueda por cursor que
+     * {@link #obtenerPaginaVentas(String, int)}, y los detalles de cada bloque en
+     * una sola consulta. Ninguna consulta queda abierta mientras se lanza la
+     * siguiente, así que el driver no tiene que cargar en memoria el resto de un
+     * resultado pendiente y la memoria usada no depende del total de ventas.
+     */
+    @Transactional(readOnly = true)
+    public void exportarVentas(OutputStream salida) throws IOException {
+        Long ultimoId = 0L;
+        List<VentaDTO> bloque;
+        do {
+            bloque = ventaRepository.findResumenesSiguientes(ultimoId, PageRequest.of(0, tamanoBloqueLectura));
+            if (!bloque.isEmpty()) {
+                ultimoId = bloque.get(bloque.size() - 1).getId();
+                escribirBloque(bloque, salida);
+            }
+        } while (bloque.size() == tamanoBloqueLectura);
+        salida.flush();
+    }
+
+    /**
+     * Escribe como CSV una fila por detalle de las ventas del rango, con los datos
+     * de su venta repetidos en cada fila. Las filas se leen con un cursor de solo
+     * avance y se escriben (comprimidas con gzip si se pide) según llegan, sin
+     * construir las ventas en memoria.
+     */
+    @Transactional(readOnly = true)
+    public void exportarLineasCsv(LocalDate fechaInicio, LocalDate fechaFin, boolean comprimir, OutputStream salida)
+            throws IOException {
+        if (fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin.");
+        }
+
+        // Compresión rápida: el cuello de botella debe ser la lectura, no el deflate
+        OutputStream destino = comprimir ? new GZIPOutputStream(salida, 64 * 1024) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        } : salida;
+        Writer csv = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), 64 * 1024);
+
+        csv.write(CABECERA_CSV);
+        try (Stream<LineaVentaDTO> lineas = detalleVentaRepository.streamLineasByFechaVentaBetween(fechaInicio, fechaFin)) {
+            Iterator<LineaVentaDTO> iterador = lineas.iterator();
+            while (iterador.hasNext()) {
+                escribirLineaCsv(iterador.next(), csv);
+            }
+        }
+        csv.flush();
+        if (destino instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+        salida.flush();
+    }
+
+    /**
+     * Actualiza la venta. Si el cliente envía la versión que leyó y la venta ha
+     * cambiado desde entonces, o si otra petición la modifica durante la
+     * actualización, se rechaza con {@link VentaConflictoException} en lugar de
+     * sobrescribir el otro cambio. No se reintenta: el cliente debe volver a
+     * consultar la venta.
+     */
     public VentaDTO actualizarVenta(Long id, VentaDTO ventaDTO) {
         VentaEntity ventaExistente = ventaRepository.findById(id).orElseThrow(() -> new RuntimeException("Venta no encontrada con el ID: " + id));
+        if (ventaDTO.getVersion() != null && !ventaDTO.getVersion().equals(ventaExistente.getVersion())) {
+            throw new VentaConflictoException(id);
+        }
+        boolean nuevosDetalles = ventaDTO.getDetallesVenta() != null && !ventaDTO.getDetallesVenta().isEmpty();
+        if (nuevosDetalles) {
+            validarVenta(ventaDTO);
+        }
+
+        // Se descuenta la venta tal como estaba y se vuelve a sumar con los nuevos datos
+        resumenVentasService.restarVenta(ventaExistente);
 
         ventaExistente.setIdVendedor(ventaDTO.getIdVendedor());
         ventaExistente.setIdCliente(ventaDTO.getIdCliente());
         ventaExistente.setTotal(ventaDTO.getTotal());
 
-        if (ventaDTO.getDetallesVenta() != null && !ventaDTO.getDetallesVenta().isEmpty()) {
+        if (nuevosDetalles) {
+            Map<Long, BigDecimal> preciosRegistrados = new HashMap<>();
+            ventaExistente.getDetalles().forEach(detalle -> preciosRegistrados.put(detalle.getIdProducto(), detalle.getPrecioUnitario()));
             ventaExistente.getDetalles().clear();
             
             ventaDTO.getDetallesVenta().forEach(detalleDTO -> {
                 DetalleVentaEntity detalle = ventaMapper.detalleToEntity(detalleDTO, ventaExistente);
+                // El subtotal es de solo lectura: se calcula aquí, con el precio registrado si el cliente no envía otro
+                BigDecimal precioUnitario = detalle.getPrecioUnitario() != null ? detalle.getPrecioUnitario()
+                    : preciosRegistrados.get(detalle.getIdProducto());
+                if (precioUnitario == null) {
+                    throw new IllegalArgumentException("Debe indicarse el precio unitario del producto ID: " + detalle.getIdProducto());
+                }
+                detalle.setPrecioUnitario(precioUnitario);
+                detalle.setSubtotal(precioUnitario.multiply(BigDecimal.valueOf(detalle.getCantidad())));
                 detalle.setVenta(ventaExistente);
                 ventaExistente.getDetalles().add(detalle);
             });
         }
 
-        VentaEntity ventaActualizada = ventaRepository.save(ventaExistente);
+        if (ventaExistente.getTotal() == null || ventaExistente.getTotal().compareTo(BigDecimal.ZERO) == 0) {
+            ventaExistente.setTotal(ventaExistente.getDetalles().stream()
+                .map(DetalleVentaEntity::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        }
+
+        // Se sincroniza aquí para que la comprobación de versión falle dentro del método y no al confirmar
+        VentaEntity ventaActualizada;
+        try {
+            ventaActualizada = ventaRepository.saveAndFlush(ventaExistente);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new VentaConflictoException(id);
+        }
+        resumenVentasService.sumarVenta(ventaActualizada);
 
         crearHistorialVenta(ventaExistente, "Actualización", id, "Venta actualizada");
 
@@ -128,6 +368,9 @@ public class VentaService {
     public void eliminarVenta(Long id) {
         VentaEntity venta = ventaRepository.findById(id).orElseThrow(() -> new RuntimeException("Venta no encontrada con el ID: " + id));
 
+        resumenVentasService.restarVenta(venta);
+        // La clave deja de existir con la venta, así que un reintento con ella registra una venta nueva
+        claveIdempotenciaRepository.deleteByIdVenta(id);
         ventaRepository.delete(venta);
     }
 
@@ -153,20 +396,98 @@ public class VentaService {
 
     @Transactional(readOnly = true)
     public List<VentaDTO> obtenerVentasPorClienteId(Long idCliente) {
-        List<VentaEntity> ventas = ventaRepository.findByIdCliente(idCliente);
-        return ventaMapper.toDTOList(ventas);
+        List<VentaDTO> ventas = ventaRepository.findResumenesByIdCliente(idCliente);
+        return agregarDetalles(ventas);
     }
 
     @Transactional(readOnly = true)
     public List<VentaDTO> obtenerVentasPorVendedorId(Long idVendedor) {
-        List<VentaEntity> ventas = ventaRepository.findByIdVendedor(idVendedor);
-        return ventaMapper.toDTOList(ventas);
+        List<VentaDTO> ventas = ventaRepository.findResumenesByIdVendedor(idVendedor);
+        return agregarDetalles(ventas);
     }
 
     @Transactional(readOnly = true)
     public List<VentaDTO> obtenerVentasPorRangoFechas(LocalDate fechaInicio, LocalDate fechaFin) {
-        List<VentaEntity> ventas = ventaRepository.findByFechaVentaBetween(fechaInicio, fechaFin);
-        return ventaMapper.toDTOList(ventas);
+        List<VentaDTO> ventas = ventaRepository.findResumenesByFechaVentaBetween(fechaInicio, fechaFin);
+        return agregarDetalles(ventas);
+    }
+
+    private void escribirBloque(List<VentaDTO> bloque, OutputStream salida) throws IOException {
+        for (VentaDTO venta : agregarDetalles(bloque)) {
+            salida.write(objectMapper.writeValueAsBytes(venta));
+            salida.write('\n');
+        }
+    }
+
+    private void escribirLineaCsv(LineaVentaDTO linea, Writer csv) throws IOException {
+        escribirCampoCsv(linea.getIdVenta(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getFechaVenta(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getIdVendedor(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getIdCliente(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getTotalVenta(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getIdDetalle(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getIdProducto(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getCantidad(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getPrecioUnitario(), csv);
+        csv.write(',');
+        escribirCampoCsv(linea.getSubtotal(), csv);
+        csv.write('\n');
+    }
+
+    // Todos los campos son numéricos o fechas ISO, así que no necesitan comillas; los nulos quedan vacíos
+    private void escribirCampoCsv(Object valor, Writer csv) throws IOException {
+        if (valor instanceof BigDecimal importe) {
+            csv.write(importe.toPlainString());
+        } else if (valor != null) {
+            csv.write(valor.toString());
+        }
+    }
+
+    /**
+     * Completa las ventas proyectadas con sus detalles, consultándolos por bloques
+     * de IDs de venta para no generar una consulta por venta.
+     */
+    private List<VentaDTO> agregarDetalles(List<VentaDTO> ventas) {
+        for (int desde = 0; desde < ventas.size(); desde += tamanoBloqueLectura) {
+            Map<Long, VentaDTO> ventasPorId = ventas.subList(desde, Math.min(desde + tamanoBloqueLectura, ventas.size()))
+                .stream().collect(Collectors.toMap(VentaDTO::getId, Function.identity()));
+
+            for (Tuple fila : detalleVentaRepository.findFilasByVentaIdIn(ventasPorId.keySet())) {
+                ventasPorId.get(fila.get("idVenta", Long.class)).getDetallesVenta().add(ventaMapper.toDetalleDTO(fila));
+            }
+        }
+        return ventas;
+    }
+
+    private String codificarCursor(Long idVenta) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(String.valueOf(idVenta).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+
+        long idVenta;
+        try {
+            // NumberFormatException también es una IllegalArgumentException
+            idVenta = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new PaginacionInvalidaException("Cursor de paginación inválido: " + cursor);
+        }
+        if (idVenta <= 0) {
+            throw new PaginacionInvalidaException("Cursor de paginación inválido: " + cursor);
+        }
+        return idVenta;
     }
 
     private void validarVenta(VentaDTO ventaDTO) {
@@ -189,6 +510,215 @@ public class VentaService {
         }
     }
 
+    /**
+     * Consulta el inventario de todos los detalles de forma concurrente. La venta
+     * completa comparte un único plazo; el primer detalle que falle (producto
+     * inexistente o stock insuficiente) cancela las consultas pendientes. Cada
+     * llamada HTTP se limita al tiempo que queda de ese plazo, así que ningún hilo
+     * sigue esperando al inventario después de que la venta haya fallado.
+     */
+    private void verificarStockYPrecios(List<DetalleVentaDTO> detalles) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutVerificacionMs);
+
+        CompletionService<DetalleVentaDTO> verificaciones = new ExecutorCompletionService<>(inventarioExecutor);
+        List<Future<DetalleVentaDTO>> pendientes = new ArrayList<>(detalles.size());
+        for (DetalleVentaDTO detalle : detalles) {
+            pendientes.add(verificaciones.submit(() -> resilienciaInventario.conPlazo(limite, () -> verificarDetalle(detalle))));
+        }
+
+        try {
+            for (int i = 0; i < pendientes.size(); i++) {
+                Future<DetalleVentaDTO> completada = verificaciones.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (completada == null) {
+                    throw new RuntimeException("Tiempo de espera agotado al verificar el inventario de la venta");
+                }
+                completada.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException("Error al verificar el inventario de la venta", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Verificación de inventario interrumpida", e);
+        } finally {
+            pendientes.forEach(pendiente -> pendiente.cancel(true));
+        }
+    }
+
+    private CompletableFuture<Void> verificarStockYPreciosAsync(List<DetalleVentaDTO> detalles) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutVerificacionMs);
+        List<CompletableFuture<DetalleVentaDTO>> verificaciones = detalles.stream()
+            .map(detalle -> CompletableFuture.supplyAsync(
+                () -> resilienciaInventario.conPlazo(limite, () -> verificarDetalle(detalle)), inventarioExecutor))
+            .toList();
+
+        CompletableFuture<Void> resultado = CompletableFuture.allOf(verificaciones.toArray(new CompletableFuture[0]));
+        // El primer detalle que falle termina la verificación sin esperar al resto
+        verificaciones.forEach(verificacion -> verificacion.whenComplete((detalle, error) -> {
+            if (error != null) {
+                resultado.completeExceptionally(error);
+            }
+        }));
+
+        return resultado.orTimeout(timeoutVerificacionMs, TimeUnit.MILLISECONDS)
+            .whenComplete((ignorado, error) -> {
+                if (error != null) {
+                    verificaciones.forEach(verificacion -> verificacion.cancel(true));
+                }
+            });
+    }
+
+    private DetalleVentaDTO verificarDetalle(DetalleVentaDTO detalle) {
+        ProductoInventarioDTO producto = productoCache.obtenerParaCantidad(detalle.getIdProducto(), detalle.getCantidad());
+
+        int stockDisponible = producto.getStock();
+        if (stockDisponible < detalle.getCantidad()) {
+            throw new RuntimeException("Stock insuficiente para el producto ID: " + detalle.getIdProducto() + ". Disponible: " + stockDisponible + ", Solicitado: " + detalle.getCantidad());
+        }
+
+        // Obtener precio del producto y setearlo en el detalle
+        BigDecimal precioUnitario = producto.getPrecio();
+        detalle.setPrecioUnitario(precioUnitario);
+        detalle.setSubtotal(precioUnitario.multiply(BigDecimal.valueOf(detalle.getCantidad())));
+        return detalle;
+    }
+
+    /**
+     * Consulta en paralelo cada producto del lote con un plazo común; los productos
+     * que no respondan a tiempo quedan cancelados y sus ventas se rechazan.
+     */
+    private Map<Long, CompletableFuture<ProductoInventarioDTO>> consultarProductos(Map<Long, Integer> cantidadesPorProducto) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutVerificacionMs);
+        Map<Long, CompletableFuture<ProductoInventarioDTO>> consultas = new HashMap<>();
+        cantidadesPorProducto.forEach((idProducto, cantidad) -> consultas.put(idProducto, CompletableFuture
+            .supplyAsync(() -> resilienciaInventario.conPlazo(limite,
+                () -> productoCache.obtenerParaCantidad(idProducto, cantidad)), inventarioExecutor)));
+
+        CompletableFuture.allOf(consultas.values().toArray(new CompletableFuture[0]))
+            .handle((ignorado, error) -> null)
+            .completeOnTimeout(null, timeoutVerificacionMs, TimeUnit.MILLISECONDS)
+            .join();
+
+        consultas.values().forEach(consulta -> consulta.cancel(true));
+        return consultas;
+    }
+
+    /**
+     * Comprueba el stock de todos los detalles de la venta contra el stock que aún
+     * queda en el lote y, si alcanza, lo descuenta y fija precios y subtotales.
+     * Devuelve el motivo del rechazo, o null si la venta es aceptada.
+     */
+    private String asignarStockYPrecios(VentaDTO venta, Map<Long, CompletableFuture<ProductoInventarioDTO>> productos,
+            Map<Long, Integer> stockRestante) {
+        for (DetalleVentaDTO detalle : venta.getDetallesVenta()) {
+            CompletableFuture<ProductoInventarioDTO> consulta = productos.get(detalle.getIdProducto());
+            if (consulta.isCancelled()) {
+                return "Tiempo de espera agotado al consultar el producto ID: " + detalle.getIdProducto();
+            }
+            if (consulta.isCompletedExceptionally()) {
+                return consulta.handle((producto, error) -> error.getCause() != null ? error.getCause().getMessage()
+                    : error.getMessage()).join();
+            }
+
+            ProductoInventarioDTO producto = consulta.join();
+            int disponible = stockRestante.computeIfAbsent(detalle.getIdProducto(), id -> producto.getStock());
+            if (disponible < detalle.getCantidad()) {
+                return "Stock insuficiente para el producto ID: " + detalle.getIdProducto() + ". Disponible: " + disponible + ", Solicitado: " + detalle.getCantidad();
+            }
+        }
+
+        for (DetalleVentaDTO detalle : venta.getDetallesVenta()) {
+            ProductoInventarioDTO producto = productos.get(detalle.getIdProducto()).join();
+            stockRestante.merge(detalle.getIdProducto(), -detalle.getCantidad(), Integer::sum);
+            detalle.setPrecioUnitario(producto.getPrecio());
+            detalle.setSubtotal(producto.getPrecio().multiply(BigDecimal.valueOf(detalle.getCantidad())));
+        }
+        return null;
+    }
+
+    /**
+     * Guarda un bloque de ventas en una sola transacción, midiendo cuánto tiempo
+     * retiene la conexión. Si el bloque falla se reintenta venta a venta, de modo
+     * que una venta con datos inválidos no impida registrar las demás.
+     */
+    private void guardarBloque(List<VentaDTO> ventas, List<Integer> bloque, ResultadoVentaLoteDTO[] resultados) {
+        try {
+            List<VentaDTO> guardadas;
+            Timer.Sample retencion = Timer.start();
+            try {
+                guardadas = transactionTemplate.execute(estado -> bloque.stream()
+                    .map(i -> ventaMapper.toDTO(guardarVenta(ventas.get(i), null))).toList());
+            } finally {
+                retencion.stop(retencionConexion);
+            }
+            for (int j = 0; j < bloque.size(); j++) {
+                resultados[bloque.get(j)] = ResultadoVentaLoteDTO.registrada(bloque.get(j), guardadas.get(j));
+            }
+        } catch (RuntimeException e) {
+            for (int i : bloque) {
+                try {
+                    resultados[i] = ResultadoVentaLoteDTO.registrada(i, confirmarVenta(ventas.get(i), null));
+                } catch (RuntimeException errorVenta) {
+                    resultados[i] = ResultadoVentaLoteDTO.rechazada(i, errorVenta.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda la venta y sus movimientos de stock en una transacción propia, midiendo
+     * cuánto tiempo retiene la conexión.
+     */
+    private VentaDTO confirmarVenta(VentaDTO ventaDTO, String claveIdempotencia) {
+        Timer.Sample retencion = Timer.start();
+        try {
+            return transactionTemplate.execute(estado -> ventaMapper.toDTO(guardarVenta(ventaDTO, claveIdempotencia)));
+        } finally {
+            retencion.stop(retencionConexion);
+        }
+    }
+
+    private VentaEntity guardarVenta(VentaDTO ventaDTO, String claveIdempotencia) {
+        VentaEntity ventaEntity = ventaMapper.toEntity(ventaDTO);
+
+        ventaEntity.setFechaVenta(LocalDate.now());
+
+        if (ventaEntity.getTotal() == null || ventaEntity.getTotal().compareTo(BigDecimal.ZERO) == 0) {
+            ventaEntity.setTotal(calcularTotalVenta(ventaDTO));
+        }
+
+        ventaEntity.getDetalles().forEach(detalle -> detalle.setVenta(ventaEntity));
+
+        VentaEntity ventaGuardada = ventaRepository.save(ventaEntity);
+
+        if (claveIdempotencia != null) {
+            claveIdempotenciaRepository.registrar(claveIdempotencia, ventaGuardada.getId(), LocalDateTime.now());
+        }
+
+        registrarMovimientosStock(ventaGuardada);
+
+        crearHistorialVenta(ventaGuardada, "Registro", ventaGuardada.getIdVendedor(), "Nueva venta registrada");
+
+        // Al final de la transacción, para retener lo menos posible las filas del acumulado diario
+        resumenVentasService.sumarVenta(ventaGuardada);
+        return ventaGuardada;
+    }
+
+    private void registrarMovimientosStock(VentaEntity venta) {
+        List<MovimientoStockOutboxEntity> movimientos = venta.getDetalles().stream().map(detalle -> {
+            MovimientoStockOutboxEntity movimiento = new MovimientoStockOutboxEntity();
+            movimiento.setIdVenta(venta.getId());
+            movimiento.setIdProducto(detalle.getIdProducto());
+            movimiento.setCantidad(detalle.getCantidad());
+            movimiento.setClaveIdempotencia("venta-" + venta.getId() + "-producto-" + detalle.getIdProducto());
+            return movimiento;
+        }).toList();
+
+        movimientoStockOutboxRepository.saveAll(movimientos);
+    }
+
     private void crearHistorialVenta(VentaEntity venta, String tipoEvento, Long idUsuario, String observacion) {
         HistorialVentaEntity historial = new HistorialVentaEntity();
         historial.setVenta(venta);
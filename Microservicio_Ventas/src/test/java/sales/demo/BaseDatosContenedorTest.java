@@ -0,0 +1,29 @@
+package sales.demo;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Base para las pruebas que necesitan una base de datos real: arranca un único
+ * contenedor MariaDB compartido por todas las clases de prueba.
+ */
+public abstract class BaseDatosContenedorTest {
+
+    static final MySQLContainer<?> MARIADB = new MySQLContainer<>(
+            DockerImageName.parse("mariadb:10.11").asCompatibleSubstituteFor("mysql"));
+
+    static {
+        MARIADB.start();
+    }
+
+    @DynamicPropertySource
+    static void configurarBaseDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:mariadb://" + MARIADB.getHost() + ":"
+                + MARIADB.getMappedPort(MySQLContainer.MYSQL_PORT) + "/" + MARIADB.getDatabaseName()
+                + "?useBulkStmts=true");
+        registry.add("spring.datasource.username", MARIADB::getUsername);
+        registry.add("spring.datasource.password", MARIADB::getPassword);
+    }
+}
@@ -0,0 +1,86 @@
+package sales.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import sales.demo.config.SecuenciasIdentificadoresConfig;
+import sales.demo.entity.VentaEntity;
+import sales.demo.repositories.VentaRepository;
+
+/**
+ * Comprueba que, sobre una tabla con filas ya existentes, la secuencia de IDs se
+ * crea o se adelanta por encima del mayor ID más el tamaño de bloque, y que
+ * nunca se hace retroceder.
+ */
+@SpringBootTest(properties = "ventas.programacion.habilitada=false")
+class SecuenciasIdentificadoresTests extends BaseDatosContenedorTest {
+
+    // Mayor que cualquier ID que hayan podido asignar las demás pruebas
+    private static final long ID_EXISTENTE = 1_000_000L;
+
+    @Autowired
+    private SecuenciasIdentificadoresConfig secuenciasIdentificadores;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void crearVentaConIdAlto() {
+        VentaEntity venta = new VentaEntity();
+        venta.setIdCliente(1L);
+        venta.setIdVendedor(2L);
+        venta.setTotal(BigDecimal.TEN);
+        Long id = ventaRepository.save(venta).getId();
+        jdbcTemplate.update("UPDATE VENTAS SET id_venta = ? WHERE id_venta = ?", ID_EXISTENTE, id);
+    }
+
+    @AfterEach
+    void limpiarVentas() {
+        ventaRepository.deleteAll();
+    }
+
+    @Test
+    void secuenciaInexistenteSeCreaPorEncimaDelMayorId() {
+        jdbcTemplate.execute("DROP SEQUENCE SEQ_VENTAS");
+
+        secuenciasIdentificadores.ajustarSecuencias();
+
+        assertEquals(ID_EXISTENTE + 51, siguienteValor());
+    }
+
+    @Test
+    void secuenciaCreadaDesdeUnoSeAdelanta() {
+        jdbcTemplate.execute("DROP SEQUENCE SEQ_VENTAS");
+        jdbcTemplate.execute("CREATE SEQUENCE SEQ_VENTAS START WITH 1 INCREMENT BY 50");
+
+        secuenciasIdentificadores.ajustarSecuencias();
+
+        assertEquals(ID_EXISTENTE + 51, siguienteValor());
+    }
+
+    @Test
+    void secuenciaPorDelanteNoRetrocede() {
+        jdbcTemplate.queryForList("SELECT SETVAL(SEQ_VENTAS, " + (ID_EXISTENTE * 2) + ", 0)");
+
+        secuenciasIdentificadores.ajustarSecuencias();
+
+        assertTrue(siguienteValor() >= ID_EXISTENTE * 2);
+    }
+
+    private long siguienteValor() {
+        return jdbcTemplate.queryForObject("SELECT NEXTVAL(SEQ_VENTAS)", Long.class);
+    }
+
+}
@@ -0,0 +1,59 @@
+package sales.demo;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Comprueba que el listado paginado responde 400, y no 500, cuando el cursor no
+ * corresponde a una página anterior o el límite está fuera de rango.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class VentaControllerPaginacionTests extends BaseDatosContenedorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @ParameterizedTest
+    @ValueSource(strings = { "0", "-1", "501" })
+    void limiteFueraDeRangoDevuelve400(String limite) throws Exception {
+        mockMvc.perform(get("/farmasync/ventas").param("limite", limite))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cursorQueNoEsBase64Devuelve400() throws Exception {
+        mockMvc.perform(get("/farmasync/ventas").param("cursor", "no es base64!"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "x", "12a", "-5", "0" })
+    void cursorQueNoEsUnIdDeVentaDevuelve400(String valor) throws Exception {
+        mockMvc.perform(get("/farmasync/ventas").param("cursor", codificar(valor)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "1", "500" })
+    void limiteDentroDeRangoDevuelve200(String limite) throws Exception {
+        mockMvc.perform(get("/farmasync/ventas").param("limite", limite).param("cursor", codificar("1")))
+            .andExpect(status().isOk());
+    }
+
+    private static String codificar(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
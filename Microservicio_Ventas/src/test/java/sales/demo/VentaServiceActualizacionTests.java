@@ -0,0 +1,109 @@
+package sales.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import sales.demo.dto.DetalleVentaDTO;
+import sales.demo.dto.VentaDTO;
+import sales.demo.entity.DetalleVentaEntity;
+import sales.demo.entity.VentaEntity;
+import sales.demo.exceptions.VentaConflictoException;
+import sales.demo.repositories.VentaRepository;
+import sales.demo.services.VentaService;
+
+/**
+ * Comprueba que una actualización basada en una versión antigua de la venta se
+ * rechaza en lugar de sobrescribir el cambio que la dejó obsoleta, y que los
+ * subtotales de los detalles actualizados los calcula el servicio.
+ */
+@SpringBootTest
+class VentaServiceActualizacionTests extends BaseDatosContenedorTest {
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    private Long idVenta;
+
+    @BeforeEach
+    void crearVenta() {
+        VentaEntity venta = new VentaEntity();
+        venta.setIdCliente(1L);
+        venta.setIdVendedor(2L);
+        venta.setTotal(new BigDecimal("20.00"));
+        DetalleVentaEntity detalle = new DetalleVentaEntity();
+        detalle.setIdProducto(10L);
+        detalle.setCantidad(2);
+        detalle.setPrecioUnitario(new BigDecimal("10.00"));
+        detalle.setSubtotal(new BigDecimal("20.00"));
+        venta.addDetalle(detalle);
+        idVenta = ventaRepository.save(venta).getId();
+    }
+
+    @AfterEach
+    void limpiarVentas() {
+        ventaRepository.deleteAll();
+    }
+
+    @Test
+    void actualizarConLaVersionLeidaAvanzaLaVersion() {
+        VentaDTO leida = ventaService.obtenerVentaPorId(idVenta);
+
+        VentaDTO actualizada = ventaService.actualizarVenta(idVenta, cambio(leida.getVersion(), 3));
+
+        assertEquals(leida.getVersion() + 1, actualizada.getVersion());
+        assertEquals(3, actualizada.getDetallesVenta().get(0).getCantidad());
+    }
+
+    @Test
+    void actualizarConUnaVersionAntiguaDevuelveConflicto() {
+        VentaDTO leida = ventaService.obtenerVentaPorId(idVenta);
+        ventaService.actualizarVenta(idVenta, cambio(leida.getVersion(), 3));
+
+        assertThrows(VentaConflictoException.class,
+            () -> ventaService.actualizarVenta(idVenta, cambio(leida.getVersion(), 5)));
+
+        VentaDTO actual = ventaService.obtenerVentaPorId(idVenta);
+        assertEquals(3, actual.getDetallesVenta().get(0).getCantidad(), "El cambio rechazado no debe aplicarse");
+    }
+
+    @Test
+    void actualizarSinPrecioNiSubtotalLosCalculaConElPrecioRegistrado() {
+        VentaDTO cambio = new VentaDTO(null, 2L, 1L, null, null, List.of(new DetalleVentaDTO(null, 10L, 4, null, null)));
+
+        VentaDTO actualizada = ventaService.actualizarVenta(idVenta, cambio);
+
+        DetalleVentaDTO detalle = actualizada.getDetallesVenta().get(0);
+        assertEquals(0, new BigDecimal("10.00").compareTo(detalle.getPrecioUnitario()));
+        assertEquals(0, new BigDecimal("40.00").compareTo(detalle.getSubtotal()));
+        assertEquals(0, new BigDecimal("40.00").compareTo(actualizada.getTotal()));
+    }
+
+    @Test
+    void actualizarUnProductoNuevoSinPrecioSeRechaza() {
+        VentaDTO cambio = new VentaDTO(null, 2L, 1L, null, null, List.of(new DetalleVentaDTO(null, 99L, 1, null, null)));
+
+        assertThrows(IllegalArgumentException.class, () -> ventaService.actualizarVenta(idVenta, cambio));
+    }
+
+    private VentaDTO cambio(Long version, int cantidad) {
+        BigDecimal precio = new BigDecimal("10.00");
+        BigDecimal subtotal = precio.multiply(BigDecimal.valueOf(cantidad));
+        VentaDTO venta = new VentaDTO(null, 2L, 1L, null, subtotal,
+            List.of(new DetalleVentaDTO(null, 10L, cantidad, precio, subtotal)));
+        venta.setVersion(version);
+        return venta;
+    }
+
+}
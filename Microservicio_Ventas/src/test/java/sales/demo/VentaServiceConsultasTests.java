@@ -0,0 +1,150 @@
+package sales.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+import sales.demo.dto.PaginaVentasDTO;
+import sales.demo.dto.VentaDTO;
+import sales.demo.entity.DetalleVentaEntity;
+import sales.demo.entity.VentaEntity;
+import sales.demo.repositories.VentaRepository;
+import sales.demo.services.VentaService;
+
+/**
+ * Comprueba que los listados y la exportación de ventas cargan los detalles con
+ * una consulta por bloque de ventas, sin importar cuántas ventas haya en cada
+ * bloque, y que no construyen entidades. Las estadísticas de Hibernate son
+ * globales, así que las tareas programadas se desactivan para que solo cuenten
+ * las consultas de la operación probada.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "ventas.programacion.habilitada=false",
+    "ventas.lectura.tamano-bloque=" + VentaServiceConsultasTests.TAMANO_BLOQUE
+})
+class VentaServiceConsultasTests extends BaseDatosContenedorTest {
+
+    static final int TAMANO_BLOQUE = 10;
+
+    // No es múltiplo del bloque, para que el último bloque quede incompleto
+    private static final int VENTAS = 25;
+    private static final int BLOQUES = (VENTAS + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+    private static final int DETALLES_POR_VENTA = 3;
+    private static final long ID_CLIENTE = 7L;
+    private static final long ID_VENDEDOR = 3L;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void crearVentas() {
+        for (int i = 0; i < VENTAS; i++) {
+            VentaEntity venta = new VentaEntity();
+            venta.setIdCliente(ID_CLIENTE);
+            venta.setIdVendedor(ID_VENDEDOR);
+            venta.setTotal(new BigDecimal("30.00"));
+            for (int j = 0; j < DETALLES_POR_VENTA; j++) {
+                DetalleVentaEntity detalle = new DetalleVentaEntity();
+                detalle.setIdProducto(100L * j + i);
+                detalle.setCantidad(1);
+                detalle.setPrecioUnitario(new BigDecimal("10.00"));
+                detalle.setSubtotal(new BigDecimal("10.00"));
+                venta.addDetalle(detalle);
+            }
+            ventaRepository.save(venta);
+        }
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void limpiarVentas() {
+        ventaRepository.deleteAll();
+    }
+
+    @Test
+    void obtenerVentasPorClienteUsaUnaConsultaDeDetallesPorBloque() {
+        verificarListado(() -> ventaService.obtenerVentasPorClienteId(ID_CLIENTE));
+    }
+
+    @Test
+    void obtenerVentasPorVendedorUsaUnaConsultaDeDetallesPorBloque() {
+        verificarListado(() -> ventaService.obtenerVentasPorVendedorId(ID_VENDEDOR));
+    }
+
+    @Test
+    void obtenerVentasPorRangoFechasUsaUnaConsultaDeDetallesPorBloque() {
+        verificarListado(() -> ventaService.obtenerVentasPorRangoFechas(LocalDate.now().minusDays(1), LocalDate.now()));
+    }
+
+    @Test
+    void obtenerPaginaVentasUsaUnaConsultaDeDetallesPorBloque() {
+        verificarListado(() -> {
+            PaginaVentasDTO pagina = ventaService.obtenerPaginaVentas(null, VENTAS);
+            assertNull(pagina.getSiguienteCursor());
+            return pagina.getVentas();
+        });
+    }
+
+    @Test
+    void exportarVentasUsaDosConsultasPorBloque() throws Exception {
+        estadisticas.clear();
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ventaService.exportarVentas(salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(VENTAS, lineas.length);
+        for (String linea : lineas) {
+            JsonNode venta = objectMapper.readTree(linea);
+            assertEquals(DETALLES_POR_VENTA, venta.get("detallesVenta").size());
+        }
+        assertEquals(2L * BLOQUES, estadisticas.getPrepareStatementCount(),
+            "Cada bloque debe leerse con una consulta de ventas y otra de detalles");
+        assertEquals(0, estadisticas.getEntityLoadCount(), "La exportación no debe cargar entidades");
+    }
+
+    private void verificarListado(Supplier<List<VentaDTO>> listado) {
+        estadisticas.clear();
+
+        List<VentaDTO> ventas = listado.get();
+
+        assertEquals(VENTAS, ventas.size());
+        assertTrue(ventas.stream().allMatch(venta -> venta.getDetallesVenta().size() == DETALLES_POR_VENTA));
+        assertEquals(1L + BLOQUES, estadisticas.getPrepareStatementCount(),
+            "El listado debe resolverse con una consulta de ventas y una de detalles por bloque");
+        assertEquals(0, estadisticas.getEntityLoadCount(), "El listado no debe cargar entidades");
+    }
+
+}
@@ -0,0 +1,192 @@
+package sales.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import sales.demo.config.HttpClientConfig;
+
+/**
+ * Comprueba contra varias réplicas de inventario simuladas que las llamadas se
+ * reparten entre ellas, que una réplica que falla seguido se expulsa hasta que
+ * la comprobación de salud la readmite, que los rechazos de negocio no la
+ * expulsan y que, si no se puede conectar con una réplica, la llamada se
+ * reintenta en otra.
+ */
+class BalanceadorInventarioTests {
+
+    private static final int REPLICAS = 3;
+    private static final int FALLOS_EXPULSION = 3;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<InventarioSimulado> replicas = new ArrayList<>();
+
+    private RestTemplate restTemplate;
+    private BalanceadorInventario balanceador;
+
+    @BeforeEach
+    void iniciarReplicas() throws IOException {
+        for (int i = 0; i < REPLICAS; i++) {
+            replicas.add(new InventarioSimulado());
+        }
+
+        restTemplate = new RestTemplate(new HttpClientConfig()
+            .inventarioRequestFactory(20, 20, 1000, 3000, 30000, false));
+        // Ventana amplia para que los fallos provocados no abran el circuito
+        ResilienciaInventario resiliencia = new ResilienciaInventario(meterRegistry, 3000, 100, 100, 0.5, 5000, 3,
+            32, 50);
+        balanceador = new BalanceadorInventario(restTemplate, resiliencia, meterRegistry,
+            replicas.stream().map(InventarioSimulado::url).toList(), "/salud", FALLOS_EXPULSION, 10000, 300000);
+    }
+
+    @AfterEach
+    void detenerReplicas() {
+        replicas.forEach(InventarioSimulado::close);
+    }
+
+    @Test
+    void llamadasSeRepartenEntreLasReplicas() {
+        for (int i = 0; i < REPLICAS * 10; i++) {
+            consultar();
+        }
+
+        for (InventarioSimulado replica : replicas) {
+            assertEquals(10, replica.peticiones().size());
+            assertEquals(10, meterRegistry.get("inventario.balanceo.peticiones")
+                .tag("instancia", replica.url()).counter().count());
+        }
+    }
+
+    @Test
+    void llamadaVaALaReplicaConMenosLlamadasEnCurso() throws Exception {
+        InventarioSimulado lenta = replicas.get(0);
+        CountDownLatch liberar = new CountDownLatch(1);
+        lenta.responderCon(peticion -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return new InventarioSimulado.Respuesta(200, "{}");
+        });
+
+        // Lanzar llamadas hasta que una quede bloqueada en la réplica lenta
+        List<CompletableFuture<String>> enCurso = new ArrayList<>();
+        for (int i = 0; i < REPLICAS && lenta.peticiones().isEmpty(); i++) {
+            enCurso.add(CompletableFuture.supplyAsync(this::consultar));
+            Thread.sleep(100);
+        }
+        assertEquals(1, lenta.peticiones().size());
+
+        for (int i = 0; i < 20; i++) {
+            consultar();
+        }
+
+        assertEquals(1, lenta.peticiones().size(), "La réplica con una llamada en curso no debe recibir más");
+        liberar.countDown();
+        for (CompletableFuture<String> llamada : enCurso) {
+            llamada.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void replicaQueFallaSeguidoSeExpulsaHastaQueVuelveAEstarSana() {
+        InventarioSimulado fallida = replicas.get(0);
+        fallida.responderCon(peticion -> new InventarioSimulado.Respuesta(503, "{}"));
+
+        // Los errores 5xx se propagan sin reintentar en otra réplica
+        while (fallida.peticiones().size() < FALLOS_EXPULSION) {
+            try {
+                consultar();
+            } catch (HttpServerErrorException e) {
+                // Esperado al caer en la réplica fallida
+            }
+        }
+        assertEquals(1, expulsada(fallida));
+
+        for (int i = 0; i < 20; i++) {
+            consultar();
+        }
+        assertEquals(FALLOS_EXPULSION, fallida.peticiones().size(), "La réplica expulsada no debe recibir llamadas");
+
+        // Mientras siga fallando, la comprobación de salud no la readmite
+        balanceador.comprobarSalud();
+        assertEquals(1, expulsada(fallida));
+
+        fallida.responderCon(peticion -> new InventarioSimulado.Respuesta(200, "{}"));
+        balanceador.comprobarSalud();
+        assertEquals(0, expulsada(fallida));
+        assertEquals(2, fallida.peticiones("/salud").size());
+
+        int antes = fallida.peticiones().size();
+        for (int i = 0; i < REPLICAS * 2; i++) {
+            consultar();
+        }
+        assertEquals(antes + 2, fallida.peticiones().size(), "La réplica readmitida debe volver a recibir su parte");
+    }
+
+    // Stock insuficiente o producto inexistente: la réplica responde, aunque sea con un error
+    @ParameterizedTest
+    @ValueSource(ints = { 400, 404, 409, 500 })
+    void rechazosDeNegocioNoExpulsanLaReplica(int estado) {
+        InventarioSimulado rechaza = replicas.get(0);
+        rechaza.responderCon(peticion -> new InventarioSimulado.Respuesta(estado, "{\"detail\":\"Stock insuficiente\"}"));
+
+        for (int i = 0; i < REPLICAS * FALLOS_EXPULSION * 2; i++) {
+            try {
+                consultar();
+            } catch (HttpStatusCodeException e) {
+                assertEquals(estado, e.getStatusCode().value());
+            }
+        }
+
+        assertEquals(0, expulsada(rechaza));
+        assertEquals(FALLOS_EXPULSION * 2, rechaza.peticiones().size(), "La réplica debe seguir recibiendo su parte");
+    }
+
+    @Test
+    void sinConexionConUnaReplicaLaLlamadaSeReintentaEnOtra() {
+        InventarioSimulado caida = replicas.get(1);
+        caida.close();
+
+        for (int i = 0; i < REPLICAS * 10; i++) {
+            assertEquals("{}", consultar());
+        }
+
+        assertEquals(REPLICAS * 10, replicas.get(0).peticiones().size() + replicas.get(2).peticiones().size());
+        assertEquals(1, expulsada(caida), "La réplica sin conexión debe expulsarse tras los fallos seguidos");
+    }
+
+    @Test
+    void conTodasLasReplicasExpulsadasSeSiguenUsando() {
+        replicas.forEach(replica -> replica.responderCon(peticion -> new InventarioSimulado.Respuesta(503, "{}")));
+        for (int i = 0; i < REPLICAS * FALLOS_EXPULSION; i++) {
+            assertThrows(HttpServerErrorException.class, this::consultar);
+        }
+        replicas.forEach(replica -> assertEquals(1, expulsada(replica)));
+
+        replicas.forEach(replica -> replica.responderCon(peticion -> new InventarioSimulado.Respuesta(200, "{}")));
+        assertEquals("{}", consultar());
+    }
+
+    private String consultar() {
+        return balanceador.ejecutar(urlInventario -> restTemplate.getForObject(urlInventario + "/1", String.class));
+    }
+
+    private double expulsada(InventarioSimulado replica) {
+        return meterRegistry.get("inventario.balanceo.expulsada").tag("instancia", replica.url()).gauge().value();
+    }
+
+}
@@ -0,0 +1,268 @@
+package sales.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Comprueba contra un inventario simulado que los descuentos de una misma
+ * ventana viajan en una sola petición a /salidas y que, si la réplica no
+ * expone ese endpoint, se envían como salidas individuales con su clave de
+ * idempotencia y el endpoint se vuelve a probar pasado un tiempo.
+ */
+class DescuentoStockBatcherTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private InventarioSimulado inventario;
+    private ThreadPoolTaskExecutor inventarioExecutor;
+    private DescuentoStockBatcher batcher;
+
+    @BeforeEach
+    void iniciarInventario() throws IOException {
+        inventario = new InventarioSimulado();
+        inventario.responderCon(peticion -> confirmarMovimientos(peticion, null));
+
+        inventarioExecutor = new ThreadPoolTaskExecutor();
+        inventarioExecutor.setCorePoolSize(8);
+        inventarioExecutor.initialize();
+    }
+
+    @AfterEach
+    void detener() {
+        if (batcher != null) {
+            batcher.detener();
+        }
+        inventarioExecutor.shutdown();
+        inventario.close();
+    }
+
+    @Test
+    void descuentosDentroDeLaVentanaViajanEnUnSoloLote() throws Exception {
+        crearBatcher(200, 200);
+
+        List<CompletableFuture<Void>> descuentos = descontar(1, 5);
+        esperar(descuentos);
+
+        List<InventarioSimulado.Peticion> lotes = inventario.peticiones("/salidas");
+        assertEquals(1, lotes.size());
+        assertEquals(1, inventario.peticiones().size(), "No debe haber salidas individuales");
+
+        JsonNode movimientos = objectMapper.readTree(lotes.get(0).cuerpo()).get("movimientos");
+        assertEquals(5, movimientos.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(String.valueOf(i + 1), movimientos.get(i).get("id").asText());
+            assertEquals(i + 1, movimientos.get(i).get("cantidad").asInt());
+            assertEquals("venta-1-producto-" + (i + 1), movimientos.get(i).get("clave").asText());
+        }
+    }
+
+    @Test
+    void loteSeEnviaSinEsperarLaVentanaAlLlenarse() throws Exception {
+        crearBatcher(5000, 3);
+
+        long inicio = System.nanoTime();
+        esperar(descontar(1, 6));
+
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(4),
+            "Los lotes llenos deben enviarse antes de que cierre la ventana");
+        List<InventarioSimulado.Peticion> lotes = inventario.peticiones("/salidas");
+        assertEquals(2, lotes.size());
+        for (InventarioSimulado.Peticion lote : lotes) {
+            assertEquals(3, objectMapper.readTree(lote.cuerpo()).get("movimientos").size());
+        }
+    }
+
+    @Test
+    void movimientoRechazadoFallaSoloSuDescuento() throws Exception {
+        inventario.responderCon(peticion -> confirmarMovimientos(peticion, "2"));
+        crearBatcher(200, 200);
+
+        List<CompletableFuture<Void>> descuentos = descontar(1, 3);
+
+        descuentos.get(0).get(5, TimeUnit.SECONDS);
+        descuentos.get(2).get(5, TimeUnit.SECONDS);
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> descuentos.get(1).get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("producto ID: 2"));
+        assertTrue(error.getCause().getMessage().contains("Stock insuficiente"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 404, 405 })
+    void sinEndpointDeLoteSeEnvianSalidasIndividuales(int estado) throws Exception {
+        inventario.responderCon(peticion -> peticion.ruta().equals("/salidas")
+            ? new InventarioSimulado.Respuesta(estado, "{}")
+            : salidaAplicada());
+        crearBatcher(200, 200);
+
+        esperar(descontar(1, 3));
+
+        assertEquals(1, inventario.peticiones("/salidas").size());
+        for (int i = 1; i <= 3; i++) {
+            List<InventarioSimulado.Peticion> salidas = inventario.peticiones("/" + i + "/salida");
+            assertEquals(1, salidas.size());
+            assertEquals("venta-1-producto-" + i, salidas.get(0).claveIdempotencia());
+            assertEquals(i, objectMapper.readTree(salidas.get(0).cuerpo()).get("cantidad").asInt());
+        }
+
+        // Los lotes siguientes van directamente a las salidas individuales
+        esperar(descontar(2, 1));
+        assertEquals(1, inventario.peticiones("/salidas").size());
+        assertEquals(1, inventario.peticiones("/1/salida").stream()
+            .filter(salida -> "venta-2-producto-1".equals(salida.claveIdempotencia())).count());
+    }
+
+    @Test
+    void endpointDeLoteSeVuelveAProbarPasadoElIntervalo() throws Exception {
+        inventario.responderCon(peticion -> peticion.ruta().equals("/salidas")
+            ? new InventarioSimulado.Respuesta(404, "{}")
+            : salidaAplicada());
+        crearBatcher(50, 200, 300, List.of(inventario.url()));
+
+        esperar(descontar(1, 2));
+        assertEquals(1, inventario.peticiones("/salidas").size());
+
+        // La réplica se actualiza y pasa a exponer /salidas
+        inventario.responderCon(peticion -> peticion.ruta().equals("/salidas")
+            ? confirmarMovimientos(peticion, null)
+            : salidaAplicada());
+        esperar(descontar(2, 2));
+        assertEquals(1, inventario.peticiones("/salidas").size(), "Dentro del intervalo no debe volver a probarse");
+
+        Thread.sleep(400);
+        int salidasIndividuales = inventario.peticiones().size() - inventario.peticiones("/salidas").size();
+        esperar(descontar(3, 2));
+        assertEquals(2, inventario.peticiones("/salidas").size());
+        assertEquals(salidasIndividuales, inventario.peticiones().size() - inventario.peticiones("/salidas").size(),
+            "Tras volver a probarse, el lote no debe enviarse como salidas individuales");
+    }
+
+    @Test
+    void replicaSinEndpointDeLoteNoImpideLotesEnLasDemas() throws Exception {
+        try (InventarioSimulado sinLote = new InventarioSimulado()) {
+            sinLote.responderCon(peticion -> peticion.ruta().equals("/salidas")
+                ? new InventarioSimulado.Respuesta(404, "{}")
+                : salidaAplicada());
+            crearBatcher(50, 200, 60000, List.of(inventario.url(), sinLote.url()));
+
+            for (int venta = 1; venta <= 6; venta++) {
+                esperar(descontar(venta, 2));
+            }
+
+            assertEquals(1, sinLote.peticiones("/salidas").size(),
+                "A la réplica sin endpoint de lote solo debe probarse una vez");
+            assertTrue(inventario.peticiones("/salidas").size() >= 2,
+                "La réplica que sí expone /salidas debe seguir recibiendo lotes");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 404, 409 })
+    void salidaIndividualRechazadaFallaSuDescuento(int estado) throws Exception {
+        inventario.responderCon(peticion -> {
+            if (peticion.ruta().equals("/salidas")) {
+                return new InventarioSimulado.Respuesta(404, "{}");
+            }
+            return peticion.ruta().equals("/2/salida")
+                ? new InventarioSimulado.Respuesta(estado, "{\"detail\":\"Stock insuficiente\"}")
+                : salidaAplicada();
+        });
+        crearBatcher(200, 200);
+
+        List<CompletableFuture<Void>> descuentos = descontar(1, 3);
+
+        descuentos.get(0).get(5, TimeUnit.SECONDS);
+        descuentos.get(2).get(5, TimeUnit.SECONDS);
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> descuentos.get(1).get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("producto ID: 2"));
+        assertTrue(error.getCause().getMessage().contains(String.valueOf(estado)));
+    }
+
+    @Test
+    void salidaIndividualSinCuerpoNoSeDaPorAplicada() throws Exception {
+        // Así respondían las versiones anteriores del inventario a un producto inexistente
+        inventario.responderCon(peticion -> peticion.ruta().equals("/salidas")
+            ? new InventarioSimulado.Respuesta(404, "{}")
+            : new InventarioSimulado.Respuesta(200, "null"));
+        crearBatcher(200, 200);
+
+        CompletableFuture<Void> descuento = descontar(1, 1).get(0);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> descuento.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("Producto no encontrado"));
+    }
+
+    private void crearBatcher(long ventanaMs, int maxMovimientos) {
+        crearBatcher(ventanaMs, maxMovimientos, 60000, List.of(inventario.url()));
+    }
+
+    private void crearBatcher(long ventanaMs, int maxMovimientos, long reintentoLoteMs, List<String> urls) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RestTemplate restTemplate = new RestTemplate();
+        ResilienciaInventario resiliencia = new ResilienciaInventario(meterRegistry, 3000, 20, 10, 0.5, 5000, 3, 32, 50);
+        BalanceadorInventario balanceador = new BalanceadorInventario(restTemplate, resiliencia, meterRegistry,
+            urls, "/salud", 3, 10000, 300000);
+
+        batcher = new DescuentoStockBatcher(restTemplate, balanceador, inventarioExecutor, ventanaMs, maxMovimientos,
+            reintentoLoteMs);
+        batcher.iniciar();
+    }
+
+    // Descuenta i unidades del producto i, para i de 1 a productos, con claves de la venta indicada
+    private List<CompletableFuture<Void>> descontar(int idVenta, int productos) {
+        List<CompletableFuture<Void>> descuentos = new ArrayList<>();
+        for (long i = 1; i <= productos; i++) {
+            descuentos.add(batcher.descontarStockAsync(i, (int) i, "venta-" + idVenta + "-producto-" + i));
+        }
+        return descuentos;
+    }
+
+    private void esperar(List<CompletableFuture<Void>> descuentos) throws Exception {
+        CompletableFuture.allOf(descuentos.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    }
+
+    // Responde como POST /{id}/salida del inventario tras aplicar el descuento
+    private InventarioSimulado.Respuesta salidaAplicada() {
+        return new InventarioSimulado.Respuesta(200, "{\"id\":\"1\",\"stock\":10}");
+    }
+
+    // Responde como POST /salidas del inventario, rechazando el producto indicado por stock insuficiente
+    private InventarioSimulado.Respuesta confirmarMovimientos(InventarioSimulado.Peticion peticion, String idRechazado)
+            throws IOException {
+        ArrayNode resultados = objectMapper.createArrayNode();
+        for (JsonNode movimiento : objectMapper.readTree(peticion.cuerpo()).get("movimientos")) {
+            String id = movimiento.get("id").asText();
+            ObjectNode resultado = resultados.addObject().put("id", id).put("exito", !id.equals(idRechazado));
+            if (id.equals(idRechazado)) {
+                resultado.put("detalle", "Stock insuficiente");
+            }
+        }
+        return new InventarioSimulado.Respuesta(200, resultados.toString());
+    }
+
+}
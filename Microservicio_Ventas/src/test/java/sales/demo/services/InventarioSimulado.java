@@ -0,0 +1,97 @@
+package sales.demo.services;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Réplica del microservicio de inventario para las pruebas: un servidor HTTP
+ * local que guarda cada petición recibida y responde con el manejador que fije
+ * la prueba. Por defecto responde 200 con un objeto JSON vacío.
+ */
+final class InventarioSimulado implements AutoCloseable {
+
+    static final String RUTA_BASE = "/farmasync/inventario";
+
+    private final HttpServer servidor;
+    private final ExecutorService hilos = Executors.newCachedThreadPool();
+    private final List<Peticion> peticiones = new CopyOnWriteArrayList<>();
+    private volatile Manejador manejador = peticion -> new Respuesta(200, "{}");
+
+    InventarioSimulado() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.setExecutor(hilos);
+        servidor.createContext("/", this::atender);
+        servidor.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort() + RUTA_BASE;
+    }
+
+    void responderCon(Manejador manejador) {
+        this.manejador = manejador;
+    }
+
+    List<Peticion> peticiones() {
+        return peticiones;
+    }
+
+    // Peticiones recibidas en la ruta indicada, relativa a RUTA_BASE
+    List<Peticion> peticiones(String ruta) {
+        return peticiones.stream().filter(peticion -> peticion.ruta().equals(ruta)).toList();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        hilos.shutdownNow();
+    }
+
+    private void atender(HttpExchange intercambio) throws IOException {
+        try {
+            String ruta = intercambio.getRequestURI().getPath();
+            Peticion peticion = new Peticion(intercambio.getRequestMethod(),
+                ruta.startsWith(RUTA_BASE) ? ruta.substring(RUTA_BASE.length()) : ruta,
+                intercambio.getRequestHeaders().getFirst("Idempotency-Key"),
+                new String(intercambio.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            peticiones.add(peticion);
+
+            Respuesta respuesta;
+            try {
+                respuesta = manejador.responder(peticion);
+            } catch (Exception e) {
+                respuesta = new Respuesta(500, "{\"detail\":\"" + e.getMessage() + "\"}");
+            }
+
+            byte[] cuerpo = respuesta.cuerpo().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "application/json");
+            intercambio.sendResponseHeaders(respuesta.estado(), cuerpo.length == 0 ? -1 : cuerpo.length);
+            if (cuerpo.length > 0) {
+                intercambio.getResponseBody().write(cuerpo);
+            }
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    record Peticion(String metodo, String ruta, String claveIdempotencia, String cuerpo) {
+    }
+
+    record Respuesta(int estado, String cuerpo) {
+    }
+
+    @FunctionalInterface
+    interface Manejador {
+        Respuesta responder(Peticion peticion) throws Exception;
+    }
+
+}
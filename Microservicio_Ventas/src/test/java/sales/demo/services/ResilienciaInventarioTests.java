@@ -0,0 +1,207 @@
+package sales.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import sales.demo.config.HttpClientConfig;
+import sales.demo.exceptions.InventarioNoDisponibleException;
+
+/**
+ * Comprueba contra un inventario simulado que falla a voluntad que el circuito
+ * se abre con los errores de disponibilidad, pero no con los rechazos de
+ * negocio, y se vuelve a cerrar tras las llamadas de prueba, que el bulkhead
+ * rechaza las llamadas que exceden el límite de concurrencia y que el plazo de
+ * la petición acorta el timeout de la llamada HTTP.
+ */
+class ResilienciaInventarioTests {
+
+    private static final int VENTANA = 4;
+    private static final long ESPERA_ABIERTO_MS = 300;
+    private static final int LLAMADAS_PRUEBA = 2;
+    private static final long READ_TIMEOUT_MS = 3000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private InventarioSimulado inventario;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void iniciarInventario() throws IOException {
+        inventario = new InventarioSimulado();
+        // El mismo cliente HTTP que usa la aplicación, que aplica el timeout calculado por llamada
+        restTemplate = new RestTemplate(new HttpClientConfig()
+            .inventarioRequestFactory(20, 20, 1000, READ_TIMEOUT_MS, 30000, false));
+    }
+
+    @AfterEach
+    void detenerInventario() {
+        inventario.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 502, 503, 504 })
+    void circuitoSeAbreTrasLosFallosYRechazaSinLlamar(int estado) {
+        ResilienciaInventario resiliencia = crearResiliencia(32);
+        inventario.responderCon(peticion -> new InventarioSimulado.Respuesta(estado, "{}"));
+
+        for (int i = 0; i < VENTANA; i++) {
+            assertThrows(HttpServerErrorException.class, () -> consultar(resiliencia));
+        }
+
+        assertThrows(InventarioNoDisponibleException.class, () -> consultar(resiliencia));
+        assertEquals(VENTANA, inventario.peticiones().size(), "Con el circuito abierto no debe llamarse al inventario");
+        assertEquals(1, estadoCircuito("abierto"));
+        assertEquals(1, rechazos("circuito_abierto"));
+    }
+
+    @Test
+    void circuitoSemiabiertoSeCierraTrasLasLlamadasDePrueba() throws Exception {
+        ResilienciaInventario resiliencia = crearResiliencia(32);
+        abrirCircuito(resiliencia);
+
+        inventario.responderCon(peticion -> new InventarioSimulado.Respuesta(200, "{}"));
+        Thread.sleep(ESPERA_ABIERTO_MS + 100);
+
+        for (int i = 0; i < LLAMADAS_PRUEBA; i++) {
+            consultar(resiliencia);
+        }
+
+        assertEquals(1, estadoCircuito("cerrado"));
+        consultar(resiliencia);
+        assertEquals(VENTANA + LLAMADAS_PRUEBA + 1, inventario.peticiones().size());
+    }
+
+    @Test
+    void fallaDeUnaLlamadaDePruebaVuelveAAbrirElCircuito() throws Exception {
+        ResilienciaInventario resiliencia = crearResiliencia(32);
+        abrirCircuito(resiliencia);
+
+        Thread.sleep(ESPERA_ABIERTO_MS + 100);
+        assertThrows(HttpServerErrorException.class, () -> consultar(resiliencia));
+
+        assertEquals(1, estadoCircuito("abierto"));
+        assertThrows(InventarioNoDisponibleException.class, () -> consultar(resiliencia));
+        assertEquals(VENTANA + 1, inventario.peticiones().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 404, 409, 500 })
+    void rechazosDeNegocioNoAbrenElCircuito(int estado) {
+        ResilienciaInventario resiliencia = crearResiliencia(32);
+        // 500 incluido: las versiones anteriores del inventario lo usan para el stock insuficiente
+        inventario.responderCon(peticion -> new InventarioSimulado.Respuesta(estado, "{}"));
+
+        for (int i = 0; i < VENTANA * 3; i++) {
+            assertThrows(estado == 500 ? HttpServerErrorException.class : HttpClientErrorException.class,
+                () -> consultar(resiliencia));
+        }
+
+        assertEquals(1, estadoCircuito("cerrado"));
+        assertEquals(VENTANA * 3, inventario.peticiones().size());
+    }
+
+    @Test
+    void bulkheadRechazaLasLlamadasQueExcedenElLimite() throws Exception {
+        ResilienciaInventario resiliencia = crearResiliencia(2);
+        CountDownLatch liberar = new CountDownLatch(1);
+        inventario.responderCon(peticion -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return new InventarioSimulado.Respuesta(200, "{}");
+        });
+
+        CompletableFuture<String> primera = CompletableFuture.supplyAsync(() -> consultar(resiliencia));
+        CompletableFuture<String> segunda = CompletableFuture.supplyAsync(() -> consultar(resiliencia));
+        esperarPeticiones(2);
+
+        long inicio = System.nanoTime();
+        assertThrows(InventarioNoDisponibleException.class, () -> consultar(resiliencia));
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(1),
+            "El rechazo debe llegar tras la espera del bulkhead, no tras la llamada en curso");
+
+        liberar.countDown();
+        primera.get(5, TimeUnit.SECONDS);
+        segunda.get(5, TimeUnit.SECONDS);
+        assertEquals(2, inventario.peticiones().size());
+        assertEquals(1, rechazos("bulkhead_lleno"));
+        assertEquals(2, meterRegistry.get("inventario.bulkhead.disponibles").gauge().value());
+    }
+
+    @Test
+    void plazoDeLaPeticionAcortaElTimeoutDeLaLlamada() {
+        ResilienciaInventario resiliencia = crearResiliencia(32);
+        inventario.responderCon(peticion -> {
+            Thread.sleep(READ_TIMEOUT_MS * 2);
+            return new InventarioSimulado.Respuesta(200, "{}");
+        });
+
+        long inicio = System.nanoTime();
+        long limite = inicio + TimeUnit.MILLISECONDS.toNanos(200);
+        assertThrows(ResourceAccessException.class, () -> resiliencia.conPlazo(limite, () -> consultar(resiliencia)));
+
+        long transcurridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        assertTrue(transcurridoMs < READ_TIMEOUT_MS / 2,
+            "La llamada debe cortarse al agotarse el plazo y no tras el read timeout; tardó " + transcurridoMs + " ms");
+    }
+
+    @Test
+    void plazoAgotadoRechazaSinLlamar() {
+        ResilienciaInventario resiliencia = crearResiliencia(32);
+
+        long limite = System.nanoTime() - 1;
+        assertThrows(InventarioNoDisponibleException.class, () -> resiliencia.conPlazo(limite, () -> consultar(resiliencia)));
+
+        assertEquals(0, inventario.peticiones().size());
+        assertEquals(1, rechazos("plazo_agotado"));
+    }
+
+    private ResilienciaInventario crearResiliencia(int maxConcurrentes) {
+        return new ResilienciaInventario(meterRegistry, READ_TIMEOUT_MS, VENTANA, VENTANA, 0.5, ESPERA_ABIERTO_MS,
+            LLAMADAS_PRUEBA, maxConcurrentes, 50);
+    }
+
+    private void abrirCircuito(ResilienciaInventario resiliencia) {
+        inventario.responderCon(peticion -> new InventarioSimulado.Respuesta(503, "{}"));
+        for (int i = 0; i < VENTANA; i++) {
+            assertThrows(HttpServerErrorException.class, () -> consultar(resiliencia));
+        }
+        assertEquals(1, estadoCircuito("abierto"));
+    }
+
+    private String consultar(ResilienciaInventario resiliencia) {
+        return resiliencia.ejecutar(() -> restTemplate.getForObject(inventario.url() + "/1", String.class));
+    }
+
+    private void esperarPeticiones(int peticiones) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inventario.peticiones().size() < peticiones && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(peticiones, inventario.peticiones().size());
+    }
+
+    private double estadoCircuito(String estado) {
+        return meterRegistry.get("inventario.circuito.estado").tag("estado", estado).gauge().value();
+    }
+
+    private double rechazos(String motivo) {
+        return meterRegistry.get("inventario.llamadas.rechazadas").tag("motivo", motivo).counter().count();
+    }
+
+}
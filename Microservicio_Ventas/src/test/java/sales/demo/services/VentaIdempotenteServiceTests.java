@@ -0,0 +1,105 @@
+package sales.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import sales.demo.BaseDatosContenedorTest;
+import sales.demo.dto.DetalleVentaDTO;
+import sales.demo.dto.VentaDTO;
+import sales.demo.repositories.ClaveIdempotenciaVentaRepository;
+import sales.demo.repositories.MovimientoStockOutboxRepository;
+import sales.demo.repositories.VentaRepository;
+
+/**
+ * Comprueba que las repeticiones con la misma Idempotency-Key devuelven la venta
+ * ya registrada y que, una vez eliminada la venta, su clave desaparece con ella:
+ * un reintento con esa clave registra una venta nueva en lugar de fallar.
+ */
+@SpringBootTest(properties = "ventas.programacion.habilitada=false")
+class VentaIdempotenteServiceTests extends BaseDatosContenedorTest {
+
+    private static final InventarioSimulado INVENTARIO = iniciarInventario();
+
+    @Autowired
+    private VentaIdempotenteService ventaIdempotenteService;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private ClaveIdempotenciaVentaRepository claveIdempotenciaRepository;
+
+    @Autowired
+    private MovimientoStockOutboxRepository movimientoStockOutboxRepository;
+
+    @DynamicPropertySource
+    static void configurarInventario(DynamicPropertyRegistry registry) {
+        registry.add("inventario.urls", INVENTARIO::url);
+    }
+
+    @AfterEach
+    void limpiarVentas() {
+        claveIdempotenciaRepository.deleteAll();
+        movimientoStockOutboxRepository.deleteAll();
+        ventaRepository.deleteAll();
+    }
+
+    @AfterAll
+    static void detenerInventario() {
+        INVENTARIO.close();
+    }
+
+    @Test
+    void repeticionConLaMismaClaveDevuelveLaVentaRegistrada() {
+        VentaDTO primera = ventaIdempotenteService.crearVenta("venta-repetida", venta());
+        VentaDTO repetida = ventaIdempotenteService.crearVenta("venta-repetida", venta());
+
+        assertEquals(primera.getId(), repetida.getId());
+        assertEquals(1, ventaRepository.count());
+    }
+
+    @Test
+    void reintentoTrasEliminarLaVentaRegistraUnaNueva() {
+        VentaDTO eliminada = ventaIdempotenteService.crearVenta("venta-eliminada", venta());
+
+        ventaIdempotenteService.eliminarVenta(eliminada.getId());
+        assertEquals(0, claveIdempotenciaRepository.count(), "La clave debe eliminarse con la venta");
+
+        VentaDTO nueva = ventaIdempotenteService.crearVenta("venta-eliminada", venta());
+
+        assertNotEquals(eliminada.getId(), nueva.getId());
+        assertEquals(nueva.getId(), claveIdempotenciaRepository.findById("venta-eliminada").orElseThrow().getIdVenta());
+        assertEquals(nueva.getId(), ventaService.buscarVentaPorClaveIdempotencia("venta-eliminada").orElseThrow().getId());
+    }
+
+    private static VentaDTO venta() {
+        return new VentaDTO(null, 2L, 1L, null, null, List.of(new DetalleVentaDTO(null, 10L, 1, null, null)));
+    }
+
+    private static InventarioSimulado iniciarInventario() {
+        try {
+            InventarioSimulado inventario = new InventarioSimulado();
+            inventario.responderCon(peticion -> new InventarioSimulado.Respuesta(200,
+                "{\"id\":\"10\",\"precio\":10.0,\"stock\":1000}"));
+            return inventario;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
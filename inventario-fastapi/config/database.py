@@ -15,3 +15,6 @@ db = client[MONGO_DB]
 
 # Colección de productos
 producto_collection = db["productos"]
+
+# Claves de idempotencia de los movimientos de stock ya aplicados
+movimiento_collection = db["movimientos_procesados"]
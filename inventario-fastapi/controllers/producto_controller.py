@@ -1,7 +1,7 @@
-from typing import List
-from fastapi import APIRouter, HTTPException
+from typing import List, Optional
+from fastapi import APIRouter, Header, HTTPException
 from models.producto import Producto
-from models.movimiento_stock import MovimientoStock
+from models.movimiento_stock import MovimientoStock, MovimientosLote
 from models.precio_update import PrecioUpdate
 from repositories.producto_repository import ProductoRepository
 from services.producto_service import ProductoService
@@ -68,9 +68,28 @@ def eliminar_producto(id: str):
 
 @router.post("/{id}/entrada", summary="Agregar stock")
 def agregar_stock(id: str, movimiento: MovimientoStock):
-    return producto_service.agregar_stock(id, movimiento.cantidad)
+    try:
+        actualizado = producto_service.agregar_stock(id, movimiento.cantidad)
+        if not actualizado:
+            raise HTTPException(status_code=404, detail="Producto no encontrado")
+        return actualizado
+    except ValueError as e:
+        raise HTTPException(status_code=400, detail=str(e))
 
 
+# El stock insuficiente responde 409: es un rechazo del movimiento, no un fallo del servicio,
+# y los clientes no deben contarlo como tal en sus circuitos ni en el balanceo de réplicas
 @router.post("/{id}/salida", summary="Descontar stock")
-def descontar_stock(id: str, movimiento: MovimientoStock):
-    return producto_service.descontar_stock(id, movimiento.cantidad)
+def descontar_stock(id: str, movimiento: MovimientoStock, idempotency_key: Optional[str] = Header(None)):
+    try:
+        actualizado = producto_service.descontar_stock(id, movimiento.cantidad, idempotency_key)
+        if not actualizado:
+            raise HTTPException(status_code=404, detail="Producto no encontrado")
+        return actualizado
+    except ValueError as e:
+        raise HTTPException(status_code=409, detail=str(e))
+
+
+@router.post("/salidas", summary="Descontar stock de varios productos")
+def descontar_stock_lote(lote: MovimientosLote):
+    return producto_service.descontar_stock_lote(lote.movimientos)
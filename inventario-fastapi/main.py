@@ -1,4 +1,6 @@
 from fastapi import FastAPI
+from fastapi.responses import JSONResponse
+from pymongo.errors import ConnectionFailure
 from controllers import producto_controller
 
 app = FastAPI(
@@ -10,6 +12,17 @@ app = FastAPI(
 # Registrar router de productos
 app.include_router(producto_controller.router)
 
+# Sin conexión con MongoDB se responde 503 en lugar de 500, para que los clientes distingan
+# que el servicio no está disponible de un error en una petición concreta
+@app.exception_handler(ConnectionFailure)
+def base_datos_no_disponible(request, exc):
+    return JSONResponse(status_code=503, content={"detail": "Base de datos de inventario no disponible"})
+
+# Comprobación de salud usada por el balanceador de ventas para readmitir réplicas
+@app.get("/salud", summary="Comprobar que el servicio responde", tags=["Salud"])
+def salud():
+    return {"estado": "ok"}
+
 if __name__ == "__main__":
     import uvicorn
     uvicorn.run("main:app", host="0.0.0.0", port=8016, reload=True)
@@ -1,4 +1,13 @@
+from typing import List, Optional
 from pydantic import BaseModel, Field
 
 class MovimientoStock(BaseModel):
     cantidad: int = Field(..., gt=0, description="Cantidad del movimiento de stock")
+
+class MovimientoProducto(BaseModel):
+    id: str
+    cantidad: int = Field(..., gt=0, description="Cantidad del movimiento de stock")
+    clave: Optional[str] = Field(None, description="Clave de idempotencia del movimiento")
+
+class MovimientosLote(BaseModel):
+    movimientos: List[MovimientoProducto]
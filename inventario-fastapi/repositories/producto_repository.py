@@ -1,6 +1,8 @@
 from models.producto import Producto
-from config.database import producto_collection
+from config.database import producto_collection, movimiento_collection
 from bson import ObjectId
+from pymongo import ReturnDocument
+from pymongo.errors import DuplicateKeyError
 
 class ProductoRepository:
     def listar(self):
@@ -12,6 +14,9 @@ class ProductoRepository:
         return productos
 
     def obtener(self, producto_id: str):
+        # Un ID que no es un ObjectId no puede corresponder a ningún producto
+        if not ObjectId.is_valid(producto_id):
+            return None
         p = producto_collection.find_one({"_id": ObjectId(producto_id)})
         if p:
             p["id"] = str(p["_id"])
@@ -64,3 +69,27 @@ class ProductoRepository:
             productos.append(Producto(**p))
 
         return productos
+
+    def registrar_movimiento(self, clave: str, producto_id: str, cantidad: int):
+        # La clave es el _id, así que solo una inserción concurrente puede tener éxito
+        try:
+            movimiento_collection.insert_one({"_id": clave, "producto_id": producto_id, "cantidad": cantidad})
+            return True
+        except DuplicateKeyError:
+            return False
+
+    def anular_movimiento(self, clave: str):
+        movimiento_collection.delete_one({"_id": clave})
+
+    def descontar_stock(self, producto_id: str, cantidad: int):
+        # Descuento atómico: solo se aplica si en ese momento hay stock suficiente
+        p = producto_collection.find_one_and_update(
+            {"_id": ObjectId(producto_id), "stock": {"$gte": cantidad}},
+            {"$inc": {"stock": -cantidad}},
+            return_document=ReturnDocument.AFTER
+        )
+        if p:
+            p["id"] = str(p["_id"])
+            del p["_id"]
+            return Producto(**p)
+        return None
@@ -57,7 +57,7 @@ class ProductoService:
         return self.repository.actualizar(producto_id, producto)
 
 
-    def descontar_stock(self, producto_id: str, cantidad: int):
+    def descontar_stock(self, producto_id: str, cantidad: int, clave: Optional[str] = None):
         if cantidad <= 0:
             raise ValueError("La cantidad debe ser mayor que 0")
 
@@ -65,11 +65,37 @@ class ProductoService:
         if not producto:
             return None
 
-        if producto.stock < cantidad:
+        # La clave se registra antes de descontar: un reintento con la misma clave,
+        # aunque llegue a la vez que el original, no consigue registrarla y no vuelve a descontar
+        if clave and not self.repository.registrar_movimiento(clave, producto_id, cantidad):
+            return producto
+
+        try:
+            actualizado = self.repository.descontar_stock(producto_id, cantidad)
+        except Exception:
+            if clave:
+                self.repository.anular_movimiento(clave)
+            raise
+
+        if actualizado is None:
+            # No se descontó nada: se libera la clave para que un reintento pueda aplicarse
+            if clave:
+                self.repository.anular_movimiento(clave)
             raise ValueError("Stock insuficiente para realizar la operación")
-
-        producto.stock -= cantidad
-        return self.repository.actualizar(producto_id, producto)
+        return actualizado
+
+    def descontar_stock_lote(self, movimientos):
+        resultados = []
+        for movimiento in movimientos:
+            try:
+                actualizado = self.descontar_stock(movimiento.id, movimiento.cantidad, movimiento.clave)
+                if actualizado is None:
+                    resultados.append({"id": movimiento.id, "exito": False, "detalle": "Producto no encontrado"})
+                else:
+                    resultados.append({"id": movimiento.id, "exito": True, "detalle": None})
+            except ValueError as e:
+                resultados.append({"id": movimiento.id, "exito": False, "detalle": str(e)})
+        return resultados
 
     def actualizar_precio(self, producto_id: str, nuevo_precio: float):
         if nuevo_precio <= 0:
@@ -1,6 +1,7 @@
 package controller;
 
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -16,8 +17,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import dto.CambioEstadoLoteDTO;
 import dto.HistorialEstadoDTO;
 import dto.PedidoDTO;
+import dto.ResultadoPedidoLoteDTO;
 import entity.EstadoPedido;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,6 +30,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.web.bind.annotation.RequestBody;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import service.PedidoService;
 
 @RestController
@@ -51,6 +56,26 @@ public class PedidoController {
 		return ResponseEntity.status(HttpStatus.CREATED).body(nuevoPedido);
 	}
 
+	@PostMapping("/lote")
+	@Operation(summary = "Crear pedidos en lote", description = "Registrar varios pedidos a la vez e informar el resultado de cada uno")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Lote procesado; cada resultado indica si su pedido se creó"),
+			@ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande") })
+	public ResponseEntity<List<ResultadoPedidoLoteDTO>> crearPedidosLote(
+			@RequestBody @NotEmpty @Size(max = 1000) List<PedidoDTO> pedidos) {
+		List<ResultadoPedidoLoteDTO> resultados = pedidoService.crearPedidosLote(pedidos);
+		return ResponseEntity.ok(resultados);
+	}
+
+	@PatchMapping("/lote/estado")
+	@Operation(summary = "Cambiar estado de varios pedidos", description = "Actualizar el estado de varios pedidos a la vez e informar el resultado de cada uno")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Lote procesado; cada resultado indica si su pedido cambió de estado"),
+			@ApiResponse(responseCode = "400", description = "Datos inválidos en la solicitud") })
+	public ResponseEntity<List<ResultadoPedidoLoteDTO>> cambiarEstadoPedidosLote(
+			@Valid @RequestBody CambioEstadoLoteDTO cambio) {
+		List<ResultadoPedidoLoteDTO> resultados = pedidoService.cambiarEstadoPedidosLote(cambio);
+		return ResponseEntity.ok(resultados);
+	}
+
 	@GetMapping
 	@Operation(summary = "Listar pedidos", description = "Obtener todos los pedidos registrados")
 	@ApiResponses(value = {
@@ -97,7 +122,8 @@ public class PedidoController {
 	@Operation(summary = "Cambiar estado del pedido", description = "Actualizar el estado de un pedido (PENDIENTE, EN_PROCESO, ENVIADO, ENTREGADO, CANCELADO)")
 	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Estado actualizado exitosamente"),
 			@ApiResponse(responseCode = "400", description = "Transición de estado inválida"),
-			@ApiResponse(responseCode = "404", description = "Pedido no encontrado") })
+			@ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
+			@ApiResponse(responseCode = "409", description = "El pedido cambió de estado de forma concurrente") })
 	public ResponseEntity<PedidoDTO> cambiarEstadoPedido(
 			@Parameter(description = "ID del pedido", required = true) @PathVariable Long id,
 			@Parameter(description = "Nuevo estado del pedido", required = true) @RequestParam EstadoPedido estado,
@@ -108,6 +134,16 @@ public class PedidoController {
 		return ResponseEntity.ok(pedidoActualizado);
 	}
 
+	@GetMapping("/{id}/transiciones")
+	@Operation(summary = "Obtener transiciones permitidas", description = "Consultar a qué estados puede pasar un pedido desde su estado actual")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Transiciones obtenidas exitosamente"),
+			@ApiResponse(responseCode = "404", description = "Pedido no encontrado") })
+	public ResponseEntity<Set<EstadoPedido>> obtenerTransicionesPermitidas(
+			@Parameter(description = "ID del pedido", required = true) @PathVariable Long id) {
+		Set<EstadoPedido> transiciones = pedidoService.obtenerTransicionesPermitidas(id);
+		return ResponseEntity.ok(transiciones);
+	}
+
 	@GetMapping("/{id}/historial")
 	@Operation(summary = "Obtener historial del pedido", description = "Consultar el historial completo de cambios de estado de un pedido")
 	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Historial obtenido exitosamente"),
@@ -0,0 +1,65 @@
+package dto;
+
+import java.util.List;
+
+import entity.EstadoPedido;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public class CambioEstadoLoteDTO {
+
+	@NotEmpty(message = "Debe indicar al menos un pedido")
+	@Size(max = 1000, message = "No se pueden cambiar más de 1000 pedidos a la vez")
+	private List<Long> idsPedido;
+
+	@NotNull(message = "El estado es obligatorio")
+	private EstadoPedido estado;
+
+	@NotNull(message = "El ID del usuario es obligatorio")
+	private Long idUsuario;
+
+	private String observaciones;
+
+	public CambioEstadoLoteDTO() {
+	}
+
+	public CambioEstadoLoteDTO(List<Long> idsPedido, EstadoPedido estado, Long idUsuario, String observaciones) {
+		this.idsPedido = idsPedido;
+		this.estado = estado;
+		this.idUsuario = idUsuario;
+		this.observaciones = observaciones;
+	}
+
+	public List<Long> getIdsPedido() {
+		return idsPedido;
+	}
+
+	public void setIdsPedido(List<Long> idsPedido) {
+		this.idsPedido = idsPedido;
+	}
+
+	public EstadoPedido getEstado() {
+		return estado;
+	}
+
+	public void setEstado(EstadoPedido estado) {
+		this.estado = estado;
+	}
+
+	public Long getIdUsuario() {
+		return idUsuario;
+	}
+
+	public void setIdUsuario(Long idUsuario) {
+		this.idUsuario = idUsuario;
+	}
+
+	public String getObservaciones() {
+		return observaciones;
+	}
+
+	public void setObservaciones(String observaciones) {
+		this.observaciones = observaciones;
+	}
+}
@@ -0,0 +1,71 @@
+package dto;
+
+import entity.EstadoPedido;
+
+public class ResultadoPedidoLoteDTO {
+
+	private Integer indice;
+	private Long idPedido;
+	private boolean exito;
+	private EstadoPedido estado;
+	private String error;
+
+	public ResultadoPedidoLoteDTO() {
+	}
+
+	public ResultadoPedidoLoteDTO(Integer indice, Long idPedido, boolean exito, EstadoPedido estado, String error) {
+		this.indice = indice;
+		this.idPedido = idPedido;
+		this.exito = exito;
+		this.estado = estado;
+		this.error = error;
+	}
+
+	public static ResultadoPedidoLoteDTO exitoso(Integer indice, Long idPedido, EstadoPedido estado) {
+		return new ResultadoPedidoLoteDTO(indice, idPedido, true, estado, null);
+	}
+
+	public static ResultadoPedidoLoteDTO fallido(Integer indice, Long idPedido, String error) {
+		return new ResultadoPedidoLoteDTO(indice, idPedido, false, null, error);
+	}
+
+	public Integer getIndice() {
+		return indice;
+	}
+
+	public void setIndice(Integer indice) {
+		this.indice = indice;
+	}
+
+	public Long getIdPedido() {
+		return idPedido;
+	}
+
+	public void setIdPedido(Long idPedido) {
+		this.idPedido = idPedido;
+	}
+
+	public boolean isExito() {
+		return exito;
+	}
+
+	public void setExito(boolean exito) {
+		this.exito = exito;
+	}
+
+	public EstadoPedido getEstado() {
+		return estado;
+	}
+
+	public void setEstado(EstadoPedido estado) {
+		this.estado = estado;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -10,17 +10,22 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Min;
 
 @Entity
-@Table(name = "DETALLE_PEDIDO")
+@Table(name = "DETALLE_PEDIDO", indexes = {
+		@Index(name = "idx_detalle_pedido", columnList = "id_pedido"),
+		@Index(name = "idx_detalle_producto", columnList = "id_producto_pedido") })
 public class DetallePedidoEntity {
 
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_pedido_seq")
+    @SequenceGenerator(name = "detalle_pedido_seq", sequenceName = "SEQ_DETALLE_PEDIDO", allocationSize = 50)
     @Column(name = "id_detalle")
     private Long idDetalle;
 
@@ -1,11 +1,36 @@
 package entity;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum EstadoPedido {
 	PENDIENTE,
     EN_PROCESO,
     ENVIADO,
     ENTREGADO,
     CANCELADO;
+
+	// Transiciones permitidas desde cada estado; se construyen una sola vez y no se modifican
+	private static final Map<EstadoPedido, Set<EstadoPedido>> TRANSICIONES = new EnumMap<>(EstadoPedido.class);
+
+	static {
+		TRANSICIONES.put(PENDIENTE, Collections.unmodifiableSet(EnumSet.of(EN_PROCESO, CANCELADO)));
+		TRANSICIONES.put(EN_PROCESO, Collections.unmodifiableSet(EnumSet.of(ENVIADO, CANCELADO)));
+		TRANSICIONES.put(ENVIADO, Collections.unmodifiableSet(EnumSet.of(ENTREGADO, CANCELADO)));
+		TRANSICIONES.put(ENTREGADO, Collections.unmodifiableSet(EnumSet.noneOf(EstadoPedido.class)));
+		TRANSICIONES.put(CANCELADO, Collections.unmodifiableSet(EnumSet.noneOf(EstadoPedido.class)));
+	}
+
+	public Set<EstadoPedido> transicionesPermitidas() {
+		return TRANSICIONES.get(this);
+	}
+
+	public boolean puedeCambiarA(EstadoPedido nuevoEstado) {
+		return TRANSICIONES.get(this).contains(nuevoEstado);
+	}
 	
 	public static EstadoPedido fromString(String value) {
         if (value == null) return null;
@@ -14,16 +14,20 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "HISTORIAL_ESTADOS_PEDIDO")
+@Table(name = "HISTORIAL_ESTADOS_PEDIDO", indexes = {
+		@Index(name = "idx_historial_pedido_fecha", columnList = "id_pedido, fecha") })
 public class HistorialEstadoPedidoEntity {
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historial_pedido_seq")
+    @SequenceGenerator(name = "historial_pedido_seq", sequenceName = "SEQ_HISTORIAL_ESTADOS_PEDIDO", allocationSize = 50)
     @Column(name = "id_historial")
     private Long idHistorial;
 
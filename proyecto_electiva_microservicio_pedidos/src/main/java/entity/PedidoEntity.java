@@ -17,16 +17,24 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "PEDIDOS")
+@Table(name = "PEDIDOS", indexes = {
+		@Index(name = "idx_pedidos_estado_fecha", columnList = "estado, fecha_pedido"),
+		@Index(name = "idx_pedidos_proveedor", columnList = "id_proveedor"),
+		@Index(name = "idx_pedidos_usuario_creador", columnList = "id_usuario_creador"),
+		@Index(name = "idx_pedidos_fecha", columnList = "fecha_pedido") })
 public class PedidoEntity {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+	@SequenceGenerator(name = "pedido_seq", sequenceName = "SEQ_PEDIDOS", allocationSize = 50)
 	@Column(name = "id_pedido")
 	private Long idPedido;
 
@@ -53,10 +61,14 @@ public class PedidoEntity {
 	@Column(name = "total", precision = 10, scale = 2, nullable = false)
 	private BigDecimal total;
 
+	@Version
+	@Column(name = "version", nullable = false)
+	private Long version;
+
 	@OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
 	private List<DetallePedidoEntity> detalles = new ArrayList<>();
 
-	@OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
+	@OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
 	private List<HistorialEstadoPedidoEntity> historial = new ArrayList<>();
 
 	public PedidoEntity() {
@@ -131,6 +143,14 @@ public class PedidoEntity {
 		this.total = total;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	public List<DetallePedidoEntity> getDetalles() {
 		return detalles;
 	}
@@ -5,11 +5,15 @@ import java.util.stream.Collectors;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -25,6 +29,15 @@ public class GlobalExceptionHandler {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
 	}
 
+	@ExceptionHandler({ PedidoConflictoException.class, ObjectOptimisticLockingFailureException.class })
+	public ResponseEntity<ErrorResponse> handleConflicto(RuntimeException ex) {
+		String message = ex instanceof PedidoConflictoException ? ex.getMessage()
+				: "El pedido fue modificado por otro usuario; vuelva a intentarlo";
+
+		ErrorResponse error = new ErrorResponse(HttpStatus.CONFLICT.value(), message, LocalDateTime.now());
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+	}
+
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public ResponseEntity<ErrorResponse> handleValidationExceptions(MethodArgumentNotValidException ex) {
 		String message = ex.getBindingResult().getAllErrors().stream().map(ObjectError::getDefaultMessage)
@@ -34,6 +47,16 @@ public class GlobalExceptionHandler {
 				LocalDateTime.now());
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
 	}
+
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ResponseEntity<ErrorResponse> handleConstraintViolation(ConstraintViolationException ex) {
+		String message = ex.getConstraintViolations().stream().map(ConstraintViolation::getMessage)
+				.collect(Collectors.joining(", "));
+
+		ErrorResponse error = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), "Errores de validación: " + message,
+				LocalDateTime.now());
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+	}
 }
 
 class ErrorResponse {
@@ -0,0 +1,8 @@
+package exceptions;
+
+public class PedidoConflictoException extends RuntimeException {
+
+	public PedidoConflictoException(Long id) {
+		super("El pedido con ID " + id + " fue modificado por otro usuario; vuelva a intentarlo");
+	}
+}
@@ -1,9 +1,12 @@
 package repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -12,16 +15,38 @@ import entity.PedidoEntity;
 
 public interface NewPedidoRepository extends JpaRepository<PedidoEntity, Long> {
 
+	// Los listados cargan los detalles en la misma consulta que los pedidos; el historial
+	// queda fuera del grafo y solo se consulta desde HistorialPedidoRepository
+
+	@Override
+	@EntityGraph(attributePaths = "detalles")
+	List<PedidoEntity> findAll();
+
+	@EntityGraph(attributePaths = "detalles")
 	List<PedidoEntity> findByIdProveedor(Long idProveedor);
 
+	@EntityGraph(attributePaths = "detalles")
 	List<PedidoEntity> findByEstado(EstadoPedido estado);
 
+	@EntityGraph(attributePaths = "detalles")
 	List<PedidoEntity> findByIdUsuarioCreador(Long idUsuario);
 
+	@EntityGraph(attributePaths = "detalles")
 	@Query("SELECT p FROM PedidoEntity p WHERE p.fechaPedido BETWEEN :fechaInicio AND :fechaFin")
 	List<PedidoEntity> findByFechaPedidoBetween(@Param("fechaInicio") LocalDateTime fechaInicio,
 			@Param("fechaFin") LocalDateTime fechaFin);
 
+	@EntityGraph(attributePaths = "detalles")
 	@Query("SELECT p FROM PedidoEntity p WHERE p.estado IN ('PENDIENTE', 'EN_PROCESO', 'ENVIADO') ORDER BY p.fechaPedido DESC")
 	List<PedidoEntity> findPedidosPendientes();
+
+	/**
+	 * Cambia el estado solo si el pedido sigue en el estado esperado. Devuelve 0
+	 * cuando otro usuario lo cambió después de leerlo.
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE PedidoEntity p SET p.estado = :nuevoEstado, p.fechaEntrega = :fechaEntrega, p.version = p.version + 1 "
+			+ "WHERE p.idPedido = :idPedido AND p.estado = :estadoEsperado")
+	int actualizarEstado(@Param("idPedido") Long idPedido, @Param("estadoEsperado") EstadoPedido estadoEsperado,
+			@Param("nuevoEstado") EstadoPedido nuevoEstado, @Param("fechaEntrega") LocalDate fechaEntrega);
 }
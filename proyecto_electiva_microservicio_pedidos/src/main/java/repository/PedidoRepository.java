@@ -2,54 +2,103 @@ package repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.stereotype.Repository;
 
 import model.Pedido;
 
+/**
+ * Almacén en memoria de pedidos, seguro para varios hilos. Los pedidos se indexan
+ * por id y por estado; se guardan y se devuelven copias para que un cambio hecho
+ * fuera del repositorio no deje el índice de estados desactualizado.
+ */
 @Repository
 public class PedidoRepository {
 
-	private final List<Pedido> baseDeDatos = new ArrayList<>();
+	private final Map<String, Pedido> baseDeDatos = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> idsPorEstado = new ConcurrentHashMap<>();
 
 	public Pedido save(Pedido pedido) {
-		baseDeDatos.add(pedido);
+		if (pedido.getId() == null) {
+			throw new IllegalArgumentException("El pedido debe tener un ID");
+		}
+
+		Pedido copia = copiar(pedido);
+		baseDeDatos.compute(pedido.getId(), (id, anterior) -> {
+			reindexar(id, anterior, copia);
+			return copia;
+		});
 		return pedido;
 	}
 
 	public Pedido findById(String id) {
-		if (baseDeDatos.size() == 0)
-			return null;
-
-		for (Pedido pedido : baseDeDatos) {
-			if (pedido.getId().equals(id)) {
-				return pedido;
-			}
-		}
-		return null;
+		Pedido pedido = id != null ? baseDeDatos.get(id) : null;
+		return pedido != null ? copiar(pedido) : null;
 	}
 
 	public List<Pedido> findAll() {
-		return new ArrayList<>(baseDeDatos);
+		List<Pedido> pedidos = new ArrayList<>(baseDeDatos.size());
+		baseDeDatos.values().forEach(pedido -> pedidos.add(copiar(pedido)));
+		return pedidos;
 	}
 
-	public Pedido update(Pedido pedido) {
-		for (int i = 0; i < baseDeDatos.size(); i++) {
-			if (baseDeDatos.get(i).getId().equals(pedido.getId())) {
-				baseDeDatos.set(i, pedido);
-				return pedido;
+	public List<Pedido> findByEstado(String estado) {
+		List<Pedido> pedidos = new ArrayList<>();
+		for (String id : idsPorEstado.getOrDefault(estado, Set.of())) {
+			Pedido pedido = baseDeDatos.get(id);
+			// El índice puede adelantarse un instante al mapa principal durante una actualización
+			if (pedido != null && estado.equals(pedido.getEstado())) {
+				pedidos.add(copiar(pedido));
 			}
 		}
-		return null;
+		return pedidos;
+	}
+
+	public Pedido update(Pedido pedido) {
+		if (pedido.getId() == null) {
+			return null;
+		}
+
+		Pedido copia = copiar(pedido);
+		Pedido actualizado = baseDeDatos.computeIfPresent(pedido.getId(), (id, anterior) -> {
+			reindexar(id, anterior, copia);
+			return copia;
+		});
+		return actualizado != null ? pedido : null;
 	}
 
 	public boolean delete(String id) {
-		for (int i = 0; i < baseDeDatos.size(); i++) {
-			if (baseDeDatos.get(i).getId().equals(id)) {
-				baseDeDatos.remove(i);
-				return true;
+		if (id == null) {
+			return false;
+		}
+
+		AtomicBoolean eliminado = new AtomicBoolean();
+		baseDeDatos.computeIfPresent(id, (clave, anterior) -> {
+			reindexar(clave, anterior, null);
+			eliminado.set(true);
+			return null;
+		});
+		return eliminado.get();
+	}
+
+	private void reindexar(String id, Pedido anterior, Pedido nuevo) {
+		if (anterior != null && anterior.getEstado() != null) {
+			Set<String> ids = idsPorEstado.get(anterior.getEstado());
+			if (ids != null) {
+				ids.remove(id);
 			}
 		}
-		return false;
+		if (nuevo != null && nuevo.getEstado() != null) {
+			idsPorEstado.computeIfAbsent(nuevo.getEstado(), estado -> ConcurrentHashMap.newKeySet()).add(id);
+		}
+	}
+
+	private Pedido copiar(Pedido pedido) {
+		return new Pedido(pedido.getNombreProducto(), pedido.getId(), pedido.getDescripcion(), pedido.getCantidad(),
+				pedido.getTotal(), pedido.getEstado(), pedido.getTiempoEstimadoEntrega());
 	}
 }
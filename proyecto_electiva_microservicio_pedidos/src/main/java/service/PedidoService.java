@@ -1,18 +1,27 @@
 package service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import dto.CambioEstadoLoteDTO;
 import dto.DetallePedidoDTO;
 import dto.HistorialEstadoDTO;
 import dto.PedidoDTO;
+import dto.ResultadoPedidoLoteDTO;
 import entity.DetallePedidoEntity;
 import entity.EstadoPedido;
 import entity.HistorialEstadoPedidoEntity;
 import entity.PedidoEntity;
 import exceptions.PedidoBusinessException;
+import exceptions.PedidoConflictoException;
 import exceptions.PedidoNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import mapper.PedidoMapper;
 import repository.DetallePedidoRepository;
 import repository.HistorialPedidoRepository;
@@ -22,11 +31,12 @@ import repository.NewPedidoRepository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,39 +47,71 @@ public class PedidoService {
 	//private final DetallePedidoRepository detallePedidoRepository;
 	private final HistorialPedidoRepository historialRepository;
 	private final PedidoMapper pedidoMapper;
+	private final Validator validator;
+	private final TransactionTemplate transactionTemplate;
+	private final int maxIntentosCambioEstado;
 
 	@Autowired
 	public PedidoService(NewPedidoRepository pedidoRepository, DetallePedidoRepository detallePedidoRepository,
-			HistorialPedidoRepository historialRepository, PedidoMapper pedidoMapper) {
+			HistorialPedidoRepository historialRepository, PedidoMapper pedidoMapper, Validator validator,
+			PlatformTransactionManager transactionManager,
+			@Value("${pedidos.estado.max-intentos:3}") int maxIntentosCambioEstado) {
 		this.pedidoRepository = pedidoRepository;
 		//this.detallePedidoRepository = detallePedidoRepository;
 		this.historialRepository = historialRepository;
 		this.pedidoMapper = pedidoMapper;
+		this.validator = validator;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxIntentosCambioEstado = maxIntentosCambioEstado;
 	}
 
 	
 	public PedidoDTO crearPedido(PedidoDTO pedidoDTO) {
 		validarPedido(pedidoDTO);
 
-		PedidoEntity pedidoEntity = pedidoMapper.toEntity(pedidoDTO);
+		PedidoEntity pedidoGuardado = pedidoRepository.save(prepararPedido(pedidoDTO));
 
-		pedidoEntity.setFechaPedido(LocalDateTime.now());
+		crearRegistroHistorial(pedidoGuardado, pedidoGuardado.getEstado(), pedidoGuardado.getIdUsuarioCreador(),
+				"Pedido creado");
 
-		if (pedidoEntity.getEstado() == null) {
-			pedidoEntity.setEstado(EstadoPedido.PENDIENTE);
-		}
-		if (pedidoEntity.getTotal() == null || pedidoEntity.getTotal().compareTo(BigDecimal.ZERO) == 0) {
-			pedidoEntity.setTotal(calcularTotalPedido(pedidoDTO));
-		}
+		return pedidoMapper.toDTO(pedidoGuardado);
+	}
 
-		pedidoEntity.getDetalles().forEach(detalle -> detalle.setPedido(pedidoEntity));
+	/**
+	 * Crea varios pedidos en una sola transacción. Los pedidos que no superan la
+	 * validación se informan en su resultado y no impiden crear el resto; los
+	 * válidos y su historial se insertan en lotes JDBC al confirmar.
+	 */
+	public List<ResultadoPedidoLoteDTO> crearPedidosLote(List<PedidoDTO> pedidosDTO) {
+		List<ResultadoPedidoLoteDTO> resultados = new ArrayList<>(pedidosDTO.size());
+		Map<Integer, PedidoEntity> pedidosValidos = new LinkedHashMap<>();
+
+		for (int i = 0; i < pedidosDTO.size(); i++) {
+			// Cada pedido se valida aquí para que un pedido inválido no haga fallar el lote completo
+			Set<ConstraintViolation<PedidoDTO>> violaciones = validator.validate(pedidosDTO.get(i));
+			if (!violaciones.isEmpty()) {
+				resultados.add(ResultadoPedidoLoteDTO.fallido(i, null, "Errores de validación: " + violaciones.stream()
+						.map(ConstraintViolation::getMessage).collect(Collectors.joining(", "))));
+				continue;
+			}
+
+			try {
+				validarPedido(pedidosDTO.get(i));
+				pedidosValidos.put(i, prepararPedido(pedidosDTO.get(i)));
+				resultados.add(null);
+			} catch (PedidoBusinessException e) {
+				resultados.add(ResultadoPedidoLoteDTO.fallido(i, null, e.getMessage()));
+			}
+		}
 
-		PedidoEntity pedidoGuardado = pedidoRepository.save(pedidoEntity);
+		pedidoRepository.saveAll(pedidosValidos.values());
 
-		crearRegistroHistorial(pedidoGuardado, pedidoGuardado.getEstado(), pedidoGuardado.getIdUsuarioCreador(),
-				"Pedido creado");
+		pedidosValidos.forEach((indice, pedido) -> {
+			crearRegistroHistorial(pedido, pedido.getEstado(), pedido.getIdUsuarioCreador(), "Pedido creado");
+			resultados.set(indice, ResultadoPedidoLoteDTO.exitoso(indice, pedido.getIdPedido(), pedido.getEstado()));
+		});
 
-		return pedidoMapper.toDTO(pedidoGuardado);
+		return resultados;
 	}
 
 	@Transactional(readOnly = true)
@@ -126,24 +168,67 @@ public class PedidoService {
 		pedidoRepository.delete(pedido);
 	}
 
+	/**
+	 * Cambia el estado con una actualización condicionada al estado leído, sin
+	 * bloquear la fila. Si otro usuario cambió el pedido entre la lectura y la
+	 * escritura, se vuelve a leer y validar en una transacción nueva, hasta
+	 * {@code pedidos.estado.max-intentos} veces.
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public PedidoDTO cambiarEstadoPedido(Long id, EstadoPedido nuevoEstado, Long idUsuario, String observaciones) {
-		PedidoEntity pedido = pedidoRepository.findById(id).orElseThrow(() -> new PedidoNotFoundException(id));
-
-		validarTransicionEstado(pedido.getEstado(), nuevoEstado);
+		for (int intento = 0; intento < maxIntentosCambioEstado; intento++) {
+			PedidoDTO pedidoActualizado = transactionTemplate
+					.execute(estado -> intentarCambioEstado(id, nuevoEstado, idUsuario, observaciones));
+			if (pedidoActualizado != null) {
+				return pedidoActualizado;
+			}
+		}
 
-		EstadoPedido estadoAnterior = pedido.getEstado();
-		pedido.setEstado(nuevoEstado);
+		throw new PedidoConflictoException(id);
+	}
 
-		if (nuevoEstado == EstadoPedido.ENTREGADO) {
-			pedido.setFechaEntrega(LocalDate.now());
+	/**
+	 * Cambia el estado de varios pedidos a la vez: los carga con una sola consulta,
+	 * valida cada transición en memoria y deja que las actualizaciones y los
+	 * registros de historial se envíen en lotes JDBC al confirmar. Los pedidos
+	 * inexistentes o con una transición no permitida se informan en su resultado.
+	 */
+	public List<ResultadoPedidoLoteDTO> cambiarEstadoPedidosLote(CambioEstadoLoteDTO cambio) {
+		Map<Long, PedidoEntity> pedidos = pedidoRepository.findAllById(cambio.getIdsPedido()).stream()
+				.collect(Collectors.toMap(PedidoEntity::getIdPedido, pedido -> pedido));
+
+		List<ResultadoPedidoLoteDTO> resultados = new ArrayList<>(cambio.getIdsPedido().size());
+		Set<Long> procesados = new HashSet<>();
+
+		for (int i = 0; i < cambio.getIdsPedido().size(); i++) {
+			Long id = cambio.getIdsPedido().get(i);
+			PedidoEntity pedido = pedidos.get(id);
+
+			if (pedido == null) {
+				resultados.add(ResultadoPedidoLoteDTO.fallido(i, id, new PedidoNotFoundException(id).getMessage()));
+				continue;
+			}
+			if (!procesados.add(id)) {
+				resultados.add(ResultadoPedidoLoteDTO.fallido(i, id, "El pedido está repetido en la solicitud"));
+				continue;
+			}
+
+			try {
+				aplicarCambioEstado(pedido, cambio.getEstado(), cambio.getIdUsuario(), cambio.getObservaciones());
+				resultados.add(ResultadoPedidoLoteDTO.exitoso(i, id, pedido.getEstado()));
+			} catch (PedidoBusinessException e) {
+				resultados.add(ResultadoPedidoLoteDTO.fallido(i, id, e.getMessage()));
+			}
 		}
 
-		PedidoEntity pedidoActualizado = pedidoRepository.save(pedido);
+		return resultados;
+	}
 
-		crearRegistroHistorial(pedidoActualizado, nuevoEstado, idUsuario,
-				observaciones != null ? observaciones : "Cambio de estado: " + estadoAnterior + " → " + nuevoEstado);
+	@Transactional(readOnly = true)
+	public Set<EstadoPedido> obtenerTransicionesPermitidas(Long id) {
+		PedidoEntity pedido = pedidoRepository.findById(id).orElseThrow(() -> new PedidoNotFoundException(id));
 
-		return pedidoMapper.toDTO(pedidoActualizado);
+		return pedido.getEstado().transicionesPermitidas();
 	}
 
 	@Transactional(readOnly = true)
@@ -197,18 +282,67 @@ public class PedidoService {
 		}
 	}
 
-	private void validarTransicionEstado(EstadoPedido estadoActual, EstadoPedido nuevoEstado) {
+	private PedidoEntity prepararPedido(PedidoDTO pedidoDTO) {
+		PedidoEntity pedidoEntity = pedidoMapper.toEntity(pedidoDTO);
+
+		pedidoEntity.setFechaPedido(LocalDateTime.now());
 
-		Map<EstadoPedido, List<EstadoPedido>> transicionesValidas = new HashMap<>();
-		transicionesValidas.put(EstadoPedido.PENDIENTE, Arrays.asList(EstadoPedido.EN_PROCESO, EstadoPedido.CANCELADO));
-		transicionesValidas.put(EstadoPedido.EN_PROCESO, Arrays.asList(EstadoPedido.ENVIADO, EstadoPedido.CANCELADO));
-		transicionesValidas.put(EstadoPedido.ENVIADO, Arrays.asList(EstadoPedido.ENTREGADO, EstadoPedido.CANCELADO));
-		transicionesValidas.put(EstadoPedido.ENTREGADO, Collections.emptyList());
-		transicionesValidas.put(EstadoPedido.CANCELADO, Collections.emptyList());
+		if (pedidoEntity.getEstado() == null) {
+			pedidoEntity.setEstado(EstadoPedido.PENDIENTE);
+		}
+		if (pedidoEntity.getTotal() == null || pedidoEntity.getTotal().compareTo(BigDecimal.ZERO) == 0) {
+			pedidoEntity.setTotal(calcularTotalPedido(pedidoDTO));
+		}
 
-		List<EstadoPedido> estadosPermitidos = transicionesValidas.get(estadoActual);
+		pedidoEntity.getDetalles().forEach(detalle -> detalle.setPedido(pedidoEntity));
+		return pedidoEntity;
+	}
 
-		if (estadosPermitidos == null || !estadosPermitidos.contains(nuevoEstado)) {
+	/**
+	 * Devuelve null si el pedido ya no estaba en el estado leído al actualizarlo.
+	 */
+	private PedidoDTO intentarCambioEstado(Long id, EstadoPedido nuevoEstado, Long idUsuario, String observaciones) {
+		PedidoEntity pedido = pedidoRepository.findById(id).orElseThrow(() -> new PedidoNotFoundException(id));
+
+		EstadoPedido estadoAnterior = pedido.getEstado();
+		validarTransicionEstado(estadoAnterior, nuevoEstado);
+
+		int actualizados = pedidoRepository.actualizarEstado(id, estadoAnterior, nuevoEstado,
+				fechaEntregaTrasCambio(pedido, nuevoEstado));
+		if (actualizados == 0) {
+			return null;
+		}
+
+		PedidoEntity pedidoActualizado = pedidoRepository.findById(id).orElseThrow(() -> new PedidoNotFoundException(id));
+		crearRegistroHistorial(pedidoActualizado, nuevoEstado, idUsuario,
+				observacionCambioEstado(estadoAnterior, nuevoEstado, observaciones));
+
+		return pedidoMapper.toDTO(pedidoActualizado);
+	}
+
+	private void aplicarCambioEstado(PedidoEntity pedido, EstadoPedido nuevoEstado, Long idUsuario,
+			String observaciones) {
+		validarTransicionEstado(pedido.getEstado(), nuevoEstado);
+
+		EstadoPedido estadoAnterior = pedido.getEstado();
+		pedido.setFechaEntrega(fechaEntregaTrasCambio(pedido, nuevoEstado));
+		pedido.setEstado(nuevoEstado);
+
+		crearRegistroHistorial(pedido, nuevoEstado, idUsuario,
+				observacionCambioEstado(estadoAnterior, nuevoEstado, observaciones));
+	}
+
+	private LocalDate fechaEntregaTrasCambio(PedidoEntity pedido, EstadoPedido nuevoEstado) {
+		return nuevoEstado == EstadoPedido.ENTREGADO ? LocalDate.now() : pedido.getFechaEntrega();
+	}
+
+	private String observacionCambioEstado(EstadoPedido estadoAnterior, EstadoPedido nuevoEstado,
+			String observaciones) {
+		return observaciones != null ? observaciones : "Cambio de estado: " + estadoAnterior + " → " + nuevoEstado;
+	}
+
+	private void validarTransicionEstado(EstadoPedido estadoActual, EstadoPedido nuevoEstado) {
+		if (estadoActual == null || !estadoActual.puedeCambiarA(nuevoEstado)) {
 			throw new PedidoBusinessException(
 					String.format("No se puede cambiar de estado %s a %s", estadoActual, nuevoEstado));
 		}
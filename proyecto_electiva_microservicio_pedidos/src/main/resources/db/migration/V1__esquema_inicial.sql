@@ -0,0 +1,31 @@
+CREATE TABLE PEDIDOS (
+    id_pedido BIGINT NOT NULL AUTO_INCREMENT,
+    observaciones VARCHAR(500),
+    id_proveedor BIGINT NOT NULL,
+    id_usuario_creador BIGINT NOT NULL,
+    estado ENUM('PENDIENTE', 'EN_PROCESO', 'ENVIADO', 'ENTREGADO', 'CANCELADO') NOT NULL,
+    fecha_pedido DATETIME(6) NOT NULL,
+    fecha_entrega DATE,
+    total DECIMAL(10, 2) NOT NULL,
+    PRIMARY KEY (id_pedido)
+) ENGINE = InnoDB;
+
+CREATE TABLE DETALLE_PEDIDO (
+    id_detalle BIGINT NOT NULL AUTO_INCREMENT,
+    id_pedido BIGINT NOT NULL,
+    id_producto_pedido BIGINT NOT NULL,
+    cantidad INTEGER NOT NULL,
+    PRIMARY KEY (id_detalle),
+    CONSTRAINT fk_detalle_pedido_pedido FOREIGN KEY (id_pedido) REFERENCES PEDIDOS (id_pedido)
+) ENGINE = InnoDB;
+
+CREATE TABLE HISTORIAL_ESTADOS_PEDIDO (
+    id_historial BIGINT NOT NULL AUTO_INCREMENT,
+    id_pedido BIGINT NOT NULL,
+    estado ENUM('PENDIENTE', 'EN_PROCESO', 'ENVIADO', 'ENTREGADO', 'CANCELADO') NOT NULL,
+    id_usuario BIGINT NOT NULL,
+    observaciones VARCHAR(500),
+    fecha DATETIME(6) NOT NULL,
+    PRIMARY KEY (id_historial),
+    CONSTRAINT fk_historial_pedido_pedido FOREIGN KEY (id_pedido) REFERENCES PEDIDOS (id_pedido)
+) ENGINE = InnoDB;
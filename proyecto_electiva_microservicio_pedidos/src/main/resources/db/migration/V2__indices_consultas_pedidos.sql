@@ -0,0 +1,11 @@
+-- findByEstado y findPedidosPendientes (estado IN (...) ORDER BY fecha_pedido DESC)
+CREATE INDEX idx_pedidos_estado_fecha ON PEDIDOS (estado, fecha_pedido);
+CREATE INDEX idx_pedidos_proveedor ON PEDIDOS (id_proveedor);
+CREATE INDEX idx_pedidos_usuario_creador ON PEDIDOS (id_usuario_creador);
+CREATE INDEX idx_pedidos_fecha ON PEDIDOS (fecha_pedido);
+
+CREATE INDEX idx_detalle_pedido ON DETALLE_PEDIDO (id_pedido);
+CREATE INDEX idx_detalle_producto ON DETALLE_PEDIDO (id_producto_pedido);
+
+-- Historial de un pedido: WHERE id_pedido = ? ORDER BY fecha DESC
+CREATE INDEX idx_historial_pedido_fecha ON HISTORIAL_ESTADOS_PEDIDO (id_pedido, fecha);
@@ -0,0 +1,22 @@
+-- Secuencias con incremento 50 para que Hibernate asigne identificadores por bloques y
+-- pueda agrupar los INSERT en lotes JDBC. Cada secuencia arranca por encima del mayor
+-- identificador existente más el tamaño de bloque, ya que el optimizador pooled toma el
+-- valor de la secuencia como límite superior del bloque.
+
+SET @inicio = (SELECT COALESCE(MAX(id_pedido), 0) + 51 FROM PEDIDOS);
+SET @sentencia = CONCAT('CREATE SEQUENCE SEQ_PEDIDOS START WITH ', @inicio, ' INCREMENT BY 50');
+PREPARE crear_secuencia FROM @sentencia;
+EXECUTE crear_secuencia;
+DEALLOCATE PREPARE crear_secuencia;
+
+SET @inicio = (SELECT COALESCE(MAX(id_detalle), 0) + 51 FROM DETALLE_PEDIDO);
+SET @sentencia = CONCAT('CREATE SEQUENCE SEQ_DETALLE_PEDIDO START WITH ', @inicio, ' INCREMENT BY 50');
+PREPARE crear_secuencia FROM @sentencia;
+EXECUTE crear_secuencia;
+DEALLOCATE PREPARE crear_secuencia;
+
+SET @inicio = (SELECT COALESCE(MAX(id_historial), 0) + 51 FROM HISTORIAL_ESTADOS_PEDIDO);
+SET @sentencia = CONCAT('CREATE SEQUENCE SEQ_HISTORIAL_ESTADOS_PEDIDO START WITH ', @inicio, ' INCREMENT BY 50');
+PREPARE crear_secuencia FROM @sentencia;
+EXECUTE crear_secuencia;
+DEALLOCATE PREPARE crear_secuencia;
@@ -0,0 +1,2 @@
+-- Columna de versión para el bloqueo optimista de PedidoEntity
+ALTER TABLE PEDIDOS ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
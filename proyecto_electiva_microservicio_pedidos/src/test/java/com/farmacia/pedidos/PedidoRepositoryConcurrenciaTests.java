@@ -0,0 +1,93 @@
+package com.farmacia.pedidos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import model.Pedido;
+import repository.PedidoRepository;
+
+/**
+ * Prueba de estrés del repositorio en memoria: varios hilos crean, cambian de
+ * estado, consultan y eliminan pedidos a la vez, y al final el mapa principal y
+ * el índice por estado deben coincidir.
+ */
+class PedidoRepositoryConcurrenciaTests {
+
+	private static final int HILOS = 8;
+	private static final int PEDIDOS_POR_HILO = 2_000;
+
+	private final PedidoRepository repositorio = new PedidoRepository();
+
+	@Test
+	void operacionesConcurrentesMantienenElIndiceConsistente() throws Exception {
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS + 1);
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Future<?>> tareas = new ArrayList<>();
+
+		for (int h = 0; h < HILOS; h++) {
+			int hilo = h;
+			tareas.add(ejecutor.submit(() -> {
+				inicio.await();
+				for (int i = 0; i < PEDIDOS_POR_HILO; i++) {
+					String id = hilo + "-" + i;
+					repositorio.save(new Pedido("Producto " + i, id, "Pedido de prueba", 1, 10.0, "PENDIENTE", 3));
+
+					Pedido pedido = repositorio.findById(id);
+					pedido.setEstado("ENVIADO");
+					repositorio.update(pedido);
+
+					// Uno de cada cuatro pedidos se elimina
+					if (i % 4 == 0) {
+						repositorio.delete(id);
+					}
+				}
+				return null;
+			}));
+		}
+
+		// Lector concurrente: findAll y findByEstado no deben fallar mientras se escribe
+		tareas.add(ejecutor.submit(() -> {
+			inicio.await();
+			for (int i = 0; i < 200; i++) {
+				repositorio.findAll();
+				repositorio.findByEstado("PENDIENTE");
+			}
+			return null;
+		}));
+
+		inicio.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get(60, TimeUnit.SECONDS);
+		}
+		ejecutor.shutdown();
+
+		int esperados = HILOS * (PEDIDOS_POR_HILO - PEDIDOS_POR_HILO / 4);
+		assertEquals(esperados, repositorio.findAll().size());
+		assertEquals(esperados, repositorio.findByEstado("ENVIADO").size());
+		assertTrue(repositorio.findByEstado("PENDIENTE").isEmpty());
+		assertNotNull(repositorio.findById("0-1"));
+		assertEquals(null, repositorio.findById("0-0"));
+	}
+
+	@Test
+	void losCambiosFueraDelRepositorioNoAlteranElIndice() {
+		Pedido pedido = new Pedido("Producto", "1", "Pedido", 1, 10.0, "PENDIENTE", 3);
+		repositorio.save(pedido);
+
+		pedido.setEstado("CANCELADO");
+
+		assertEquals(1, repositorio.findByEstado("PENDIENTE").size());
+		assertTrue(repositorio.findByEstado("CANCELADO").isEmpty());
+	}
+}
@@ -0,0 +1,116 @@
+package com.farmacia.pedidos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dto.DetallePedidoDTO;
+import dto.PedidoDTO;
+import entity.EstadoPedido;
+import exceptions.PedidoBusinessException;
+import repository.NewPedidoRepository;
+import service.PedidoService;
+
+/**
+ * Varios hilos intentan la misma transición sobre un pedido a la vez: solo uno
+ * debe aplicarla y el resto debe ver la transición como inválida tras releer el
+ * pedido, sin registros de historial duplicados.
+ */
+@SpringBootTest
+class PedidoServiceConcurrenciaTests extends BaseDatosContenedorTest {
+
+	private static final int HILOS = 8;
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private NewPedidoRepository pedidoRepository;
+
+	@AfterEach
+	void limpiarPedidos() {
+		pedidoRepository.deleteAll();
+	}
+
+	@Test
+	void soloUnHiloAplicaLaMismaTransicion() throws Exception {
+		PedidoDTO pedido = pedidoService.crearPedido(new PedidoDTO(null, 7L, 1L, EstadoPedido.PENDIENTE, "Pedido",
+				null, null, new BigDecimal("100.00"), List.of(new DetallePedidoDTO(null, 100L, 2))));
+
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch inicio = new CountDownLatch(1);
+		AtomicInteger aplicados = new AtomicInteger();
+		AtomicInteger rechazados = new AtomicInteger();
+		List<Future<?>> tareas = new ArrayList<>();
+
+		for (int i = 0; i < HILOS; i++) {
+			long idUsuario = i;
+			tareas.add(ejecutor.submit(() -> {
+				inicio.await();
+				try {
+					pedidoService.cambiarEstadoPedido(pedido.getIdPedido(), EstadoPedido.EN_PROCESO, idUsuario, null);
+					aplicados.incrementAndGet();
+				} catch (PedidoBusinessException e) {
+					rechazados.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+
+		inicio.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get(60, TimeUnit.SECONDS);
+		}
+		ejecutor.shutdown();
+
+		assertEquals(1, aplicados.get());
+		assertEquals(HILOS - 1, rechazados.get());
+		assertEquals(EstadoPedido.EN_PROCESO, pedidoService.obtenerPedidoPorId(pedido.getIdPedido()).getEstado());
+		// Creación más un único cambio de estado
+		assertEquals(2, pedidoService.obtenerHistorialPedido(pedido.getIdPedido()).size());
+	}
+
+	@Test
+	void cancelarConcurrenteSiempreGanaSobreElEstadoMasReciente() throws Exception {
+		PedidoDTO pedido = pedidoService.crearPedido(new PedidoDTO(null, 7L, 1L, EstadoPedido.PENDIENTE, "Pedido",
+				null, null, new BigDecimal("100.00"), List.of(new DetallePedidoDTO(null, 100L, 2))));
+
+		ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+		CountDownLatch inicio = new CountDownLatch(1);
+		Future<Boolean> enProceso = ejecutor.submit(() -> {
+			inicio.await();
+			try {
+				pedidoService.cambiarEstadoPedido(pedido.getIdPedido(), EstadoPedido.EN_PROCESO, 1L, null);
+				return true;
+			} catch (PedidoBusinessException e) {
+				return false;
+			}
+		});
+		Future<?> cancelado = ejecutor.submit(() -> {
+			inicio.await();
+			return pedidoService.cambiarEstadoPedido(pedido.getIdPedido(), EstadoPedido.CANCELADO, 2L, null);
+		});
+
+		inicio.countDown();
+		boolean enProcesoAplicado = enProceso.get(60, TimeUnit.SECONDS);
+		cancelado.get(60, TimeUnit.SECONDS);
+		ejecutor.shutdown();
+
+		// La cancelación se aplica sobre PENDIENTE o EN_PROCESO; EN_PROCESO solo si llegó antes
+		assertEquals(EstadoPedido.CANCELADO, pedidoService.obtenerPedidoPorId(pedido.getIdPedido()).getEstado());
+		assertEquals(enProcesoAplicado ? 3 : 2, pedidoService.obtenerHistorialPedido(pedido.getIdPedido()).size());
+	}
+}
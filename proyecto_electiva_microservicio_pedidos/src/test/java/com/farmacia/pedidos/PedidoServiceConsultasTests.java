@@ -0,0 +1,95 @@
+package com.farmacia.pedidos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dto.DetallePedidoDTO;
+import dto.PedidoDTO;
+import entity.EstadoPedido;
+import entity.PedidoEntity;
+import jakarta.persistence.EntityManagerFactory;
+import repository.NewPedidoRepository;
+import service.PedidoService;
+
+/**
+ * Comprueba que los listados de pedidos cargan los detalles con un número fijo de
+ * sentencias, sin importar cuántos pedidos haya, y que nunca cargan el historial.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PedidoServiceConsultasTests extends BaseDatosContenedorTest {
+
+	private static final int PEDIDOS = 25;
+	private static final long ID_PROVEEDOR = 7L;
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private NewPedidoRepository pedidoRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics estadisticas;
+
+	@BeforeEach
+	void crearPedidos() {
+		for (int i = 0; i < PEDIDOS; i++) {
+			List<DetallePedidoDTO> detalles = List.of(new DetallePedidoDTO(null, 100L + i, 2),
+					new DetallePedidoDTO(null, 200L + i, 5), new DetallePedidoDTO(null, 300L + i, 1));
+			pedidoService.crearPedido(new PedidoDTO(null, ID_PROVEEDOR, 1L, EstadoPedido.PENDIENTE, "Pedido " + i,
+					null, null, new BigDecimal("100.00"), detalles));
+		}
+
+		estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@AfterEach
+	void limpiarPedidos() {
+		pedidoRepository.deleteAll();
+	}
+
+	@Test
+	void listarTodosPedidosUsaUnaSolaConsulta() {
+		verificarConsultas(pedidoService::listarTodosPedidos);
+	}
+
+	@Test
+	void buscarPedidosPorProveedorUsaUnaSolaConsulta() {
+		verificarConsultas(() -> pedidoService.buscarPedidosPorProveedor(ID_PROVEEDOR));
+	}
+
+	@Test
+	void buscarPedidosPorEstadoUsaUnaSolaConsulta() {
+		verificarConsultas(() -> pedidoService.buscarPedidosPorEstado(EstadoPedido.PENDIENTE));
+	}
+
+	@Test
+	void buscarPedidosPendientesUsaUnaSolaConsulta() {
+		verificarConsultas(pedidoService::buscarPedidosPendientes);
+	}
+
+	private void verificarConsultas(Supplier<List<PedidoDTO>> listado) {
+		estadisticas.clear();
+
+		List<PedidoDTO> pedidos = listado.get();
+
+		assertEquals(PEDIDOS, pedidos.size());
+		assertTrue(pedidos.stream().allMatch(pedido -> pedido.getDetalles().size() == 3));
+		assertEquals(1, estadisticas.getPrepareStatementCount(), "El listado debe resolverse con una sola sentencia");
+		assertEquals(0, estadisticas.getCollectionStatistics(PedidoEntity.class.getName() + ".historial")
+				.getFetchCount(), "El listado no debe cargar el historial");
+	}
+}